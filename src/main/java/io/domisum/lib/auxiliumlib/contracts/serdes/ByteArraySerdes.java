@@ -0,0 +1,82 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serdes to and from byte arrays, for example for storages which keep serialized values in buffers.
+ */
+@API
+public interface ByteArraySerdes<T>
+{
+	
+	@API
+	byte[] serialize(T object);
+	
+	@API
+	T deserialize(byte[] bytes);
+	
+	
+	// INIT
+	@API
+	static <T> ByteArraySerdes<T> of(StringSerdes<T> serdes)
+	{
+		return new ByteArraySerdes<>()
+		{
+			@Override
+			public byte[] serialize(T object)
+			{
+				return serdes.serialize(object).getBytes(StandardCharsets.UTF_8);
+			}
+			
+			@Override
+			public T deserialize(byte[] bytes)
+			{
+				return serdes.deserialize(new String(bytes, StandardCharsets.UTF_8));
+			}
+		};
+	}
+	
+	/**
+	 * Wraps the given serdes, throwing its IOExceptions as {@link UncheckedIOException}.
+	 */
+	@API
+	static <T> ByteArraySerdes<T> of(InputStreamSerdes<T> serdes)
+	{
+		return new ByteArraySerdes<>()
+		{
+			@Override
+			public byte[] serialize(T object)
+			{
+				try(InputStream stream = serdes.serializeToInputStream(object))
+				{
+					return IOUtils.toByteArray(stream);
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+			
+			@Override
+			public T deserialize(byte[] bytes)
+			{
+				try
+				{
+					return serdes.deserializeFromInputStream(new ByteArrayInputStream(bytes));
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+	
+}
@@ -0,0 +1,93 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.CompressionUtil;
+import io.domisum.lib.auxiliumlib.util.CompressionUtil.Speed;
+import io.domisum.lib.auxiliumlib.util.FileUtil;
+import lombok.RequiredArgsConstructor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Compresses the files of another serdes. The compressed file is placed next to the original one, with an additional
+ * extension, and the original file is deleted.
+ */
+@API
+@RequiredArgsConstructor
+public class CompressingFileSerdes<T>
+	implements FileSerdes<T>
+{
+	
+	// CONSTANTS
+	private static final String COMPRESSED_EXTENSION = "deflate";
+	
+	// ATTRIBUTES
+	private final FileSerdes<T> serdes;
+	private final Speed compressionSpeed;
+	
+	
+	// INIT
+	@API
+	public CompressingFileSerdes(FileSerdes<T> serdes)
+	{
+		this(serdes, Speed.BALANCED);
+	}
+	
+	
+	// SERIALIZER
+	@API
+	@Override
+	public File serializeToFile(T object)
+		throws IOException
+	{
+		var file = serdes.serializeToFile(object);
+		var compressedFile = FileUtil.getFileInSameDirectory(file, file.getName()+"."+COMPRESSED_EXTENSION);
+		
+		try(var input = new FileInputStream(file);
+			var output = new FileOutputStream(compressedFile))
+		{
+			output.write(CompressionHeader.create(compressionSpeed));
+			try(var compressingOutput = CompressionUtil.compressingOutputStream(output, compressionSpeed))
+			{
+				input.transferTo(compressingOutput);
+			}
+		}
+		
+		FileUtil.deleteFile(file);
+		return compressedFile;
+	}
+	
+	@API
+	@Override
+	public T deserializeFromFile(File file)
+		throws IOException
+	{
+		// the wrapped serdes might depend on the extension the file had before compression
+		String originalName = file.getName().replaceFirst("\\."+COMPRESSED_EXTENSION+"$", "");
+		String originalExtension = FileUtil.getExtension(originalName);
+		var decompressedFile = FileUtil.getNonExistentTemporaryFile(originalExtension.isEmpty() ? null : originalExtension);
+		
+		try
+		{
+			try(var input = new FileInputStream(file);
+				var output = new FileOutputStream(decompressedFile))
+			{
+				CompressionHeader.readAndValidate(input);
+				try(var decompressingInput = CompressionUtil.decompressingInputStream(input))
+				{
+					decompressingInput.transferTo(output);
+				}
+			}
+			
+			return serdes.deserializeFromFile(decompressedFile);
+		}
+		finally
+		{
+			FileUtil.deleteFile(decompressedFile);
+		}
+	}
+	
+}
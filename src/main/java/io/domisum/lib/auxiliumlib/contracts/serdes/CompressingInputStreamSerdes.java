@@ -0,0 +1,61 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.CompressionUtil;
+import io.domisum.lib.auxiliumlib.util.CompressionUtil.Speed;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.input.CloseShieldInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * Compresses the serialized form of another serdes. Compression and decompression happen while the streams are read.
+ */
+@API
+@RequiredArgsConstructor
+public class CompressingInputStreamSerdes<T>
+	implements InputStreamSerdes<T>
+{
+	
+	// ATTRIBUTES
+	private final InputStreamSerdes<T> serdes;
+	private final Speed compressionSpeed;
+	
+	
+	// INIT
+	@API
+	public CompressingInputStreamSerdes(InputStreamSerdes<T> serdes)
+	{
+		this(serdes, Speed.BALANCED);
+	}
+	
+	
+	// SERIALIZER
+	@API
+	@Override
+	public InputStream serializeToInputStream(T object)
+		throws IOException
+	{
+		var header = new ByteArrayInputStream(CompressionHeader.create(compressionSpeed));
+		var compressed = CompressionUtil.compressingInputStream(serdes.serializeToInputStream(object), compressionSpeed);
+		return new SequenceInputStream(header, compressed);
+	}
+	
+	@API
+	@Override
+	public T deserializeFromInputStream(InputStream stream)
+		throws IOException
+	{
+		CompressionHeader.readAndValidate(stream);
+		
+		// closing the decompressing stream releases its native inflater, but the given stream belongs to the caller
+		try(var decompressed = CompressionUtil.decompressingInputStream(new CloseShieldInputStream(stream)))
+		{
+			return serdes.deserializeFromInputStream(decompressed);
+		}
+	}
+	
+}
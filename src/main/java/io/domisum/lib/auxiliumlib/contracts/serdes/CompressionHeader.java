@@ -0,0 +1,37 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes;
+
+import io.domisum.lib.auxiliumlib.util.CompressionUtil.Speed;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Small header in front of compressed data, recording the codec and compression level it was written with.
+ */
+final class CompressionHeader
+{
+	
+	// CONSTANTS
+	private static final byte MAGIC_0 = (byte) 0xC5;
+	private static final byte MAGIC_1 = (byte) 0xDE;
+	private static final byte CODEC_DEFLATE = 1;
+	static final int SIZE_BYTES = 4;
+	
+	
+	// HEADER
+	static byte[] create(Speed compressionSpeed)
+	{
+		return new byte[] {MAGIC_0, MAGIC_1, CODEC_DEFLATE, (byte) compressionSpeed.getDeflaterLevel()};
+	}
+	
+	static void readAndValidate(InputStream stream)
+		throws IOException
+	{
+		byte[] header = stream.readNBytes(SIZE_BYTES);
+		if(header.length < SIZE_BYTES || header[0] != MAGIC_0 || header[1] != MAGIC_1)
+			throw new IOException("Data doesn't start with a compression header");
+		if(header[2] != CODEC_DEFLATE)
+			throw new IOException("Unknown compression codec: "+header[2]);
+	}
+	
+}
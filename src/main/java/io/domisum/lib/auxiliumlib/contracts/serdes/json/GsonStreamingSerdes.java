@@ -0,0 +1,188 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.serdes.InputStreamSerdes;
+import io.domisum.lib.auxiliumlib.util.GsonUtil;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Json serdes which reads and writes directly from and to streams, without building the whole json as a String.
+ * Uses the compact gson profile by default.
+ * <p>
+ * Serializing to an InputStream still has to buffer the encoded bytes. The returned stream reads that buffer directly
+ * without copying it, and closing the stream hands the buffer back to a pool for reuse by the same thread. Buffers of
+ * streams which aren't closed, which are closed by another thread or which grew beyond 1 MiB are left to the garbage
+ * collector, so each thread keeps at most one buffer of up to 1 MiB.
+ */
+@API
+@RequiredArgsConstructor
+public class GsonStreamingSerdes<T>
+	implements InputStreamSerdes<T>
+{
+	
+	// CONSTANTS
+	private static final int INITIAL_BUFFER_SIZE = 8*1024;
+	private static final int MAX_POOLED_BUFFER_SIZE = 1024*1024;
+	private static final ThreadLocal<PooledBuffer> IDLE_BUFFERS = new ThreadLocal<>();
+	
+	// ATTRIBUTES
+	private final Gson gson;
+	private final Type type;
+	
+	
+	// INIT
+	@API
+	public GsonStreamingSerdes(Class<T> clazz)
+	{
+		this(GsonUtil.getCompact(), clazz);
+	}
+	
+	
+	// SERIALIZER
+	@API
+	@Override
+	public InputStream serializeToInputStream(T object)
+		throws IOException
+	{
+		// the buffer is taken out of the pool while in use, so nested serializations get a buffer of their own
+		var buffer = IDLE_BUFFERS.get();
+		IDLE_BUFFERS.set(null);
+		if(buffer == null)
+			buffer = new PooledBuffer();
+		
+		try
+		{
+			serializeToOutputStream(object, buffer);
+		}
+		catch(IOException|RuntimeException e)
+		{
+			buffer.release();
+			throw e;
+		}
+		
+		return buffer.toInputStream();
+	}
+	
+	/**
+	 * Writes the object as json to the stream, without closing the stream.
+	 */
+	@API
+	public void serializeToOutputStream(T object, OutputStream stream)
+		throws IOException
+	{
+		var writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+		var jsonWriter = gson.newJsonWriter(writer);
+		try
+		{
+			gson.toJson(object, type, jsonWriter);
+		}
+		catch(JsonIOException e)
+		{
+			throw new IOException("Failed to serialize object of type "+type, e);
+		}
+		
+		jsonWriter.flush();
+	}
+	
+	@API
+	@Override
+	public T deserializeFromInputStream(InputStream stream)
+		throws IOException
+	{
+		var jsonReader = gson.newJsonReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+		try
+		{
+			return gson.fromJson(jsonReader, type);
+		}
+		catch(JsonIOException e)
+		{
+			throw new IOException("Failed to deserialize object of type "+type, e);
+		}
+	}
+	
+	
+	// BUFFER
+	private static class PooledBuffer
+		extends ByteArrayOutputStream
+	{
+		
+		// the pool is per thread, so only the thread which took the buffer may put it back
+		private final Thread owner = Thread.currentThread();
+		
+		
+		// INIT
+		public PooledBuffer()
+		{
+			super(INITIAL_BUFFER_SIZE);
+		}
+		
+		
+		// POOL
+		public InputStream toInputStream()
+		{
+			return new PooledBufferInputStream(this, buf, count);
+		}
+		
+		public void release()
+		{
+			if(Thread.currentThread() != owner)
+				return;
+			if(buf.length > MAX_POOLED_BUFFER_SIZE) // don't keep buffers of exceptionally large objects around
+				return;
+			
+			reset();
+			if(IDLE_BUFFERS.get() == null)
+				IDLE_BUFFERS.set(this);
+		}
+		
+	}
+	
+	private static class PooledBufferInputStream
+		extends ByteArrayInputStream
+	{
+		
+		@Nullable
+		private PooledBuffer buffer;
+		
+		
+		// INIT
+		public PooledBufferInputStream(PooledBuffer buffer, byte[] bytes, int length)
+		{
+			super(bytes, 0, length);
+			this.buffer = buffer;
+		}
+		
+		
+		// CLOSE
+		@Override
+		public synchronized void close()
+		{
+			if(buffer == null)
+				return;
+			
+			// the buffer is reused after releasing it, so this stream must not read it anymore
+			buf = new byte[0];
+			pos = 0;
+			count = 0;
+			mark = 0;
+			
+			buffer.release();
+			buffer = null;
+		}
+		
+	}
+	
+}
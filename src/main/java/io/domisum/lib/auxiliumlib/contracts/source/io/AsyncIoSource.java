@@ -0,0 +1,18 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking variant of {@link IoSource}. Failed lookups complete the returned future exceptionally, usually with an
+ * IOException.
+ */
+@API
+public interface AsyncIoSource<K, V>
+{
+	
+	@API
+	CompletableFuture<V> getAsync(K key);
+	
+}
@@ -3,6 +3,9 @@ package io.domisum.lib.auxiliumlib.contracts.source.io;
 import io.domisum.lib.auxiliumlib.annotations.API;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @API
 public interface IoSource<K, V>
@@ -12,6 +15,21 @@ public interface IoSource<K, V>
 	V get(K key)
 		throws IOException;
 	
+	/**
+	 * Returns the values of all given keys, in the iteration order of the given keys. Implementations which can load
+	 * several keys in one round trip should override this.
+	 */
+	@API
+	default Map<K, V> getAll(Collection<K> keys)
+		throws IOException
+	{
+		var values = new LinkedHashMap<K, V>();
+		for(var key : keys)
+			values.put(key, get(key));
+		
+		return values;
+	}
+	
 	@API
 	default IoOptional<V> getOptional(K key)
 	{
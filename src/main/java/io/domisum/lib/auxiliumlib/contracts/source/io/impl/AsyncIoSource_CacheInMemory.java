@@ -0,0 +1,110 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.source.io.AsyncIoSource;
+import io.domisum.lib.auxiliumlib.datastructures.CacheStats;
+import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
+import io.domisum.lib.auxiliumlib.datastructures.LazyCache;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the values of an async backing source in memory. Concurrent lookups of a key which is being loaded share the
+ * in-flight lookup instead of starting another one. Failed lookups aren't cached.
+ */
+@RequiredArgsConstructor
+public abstract class AsyncIoSource_CacheInMemory<K, V>
+	implements AsyncIoSource<K, V>
+{
+	
+	// DEPENDENCIES
+	private final AsyncIoSource<K, V> backingSource;
+	
+	// CACHE
+	private final LazyCache<K, V> cache = createCache();
+	private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	
+	
+	// CONSTANT METHODS
+	@Nullable
+	protected abstract ExpirationSettings EXPIRATION_SETTINGS();
+	
+	protected boolean RECORD_STATS()
+	{
+		return false;
+	}
+	
+	
+	// INIT
+	private LazyCache<K, V> createCache()
+	{
+		LazyCache<K, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+		if(RECORD_STATS())
+			cache.enableStats();
+		
+		return cache;
+	}
+	
+	
+	// SOURCE
+	@Override
+	public CompletableFuture<V> getAsync(K key)
+	{
+		var cachedValue = cache.getIfPresent(key);
+		if(cachedValue != null)
+			return CompletableFuture.completedFuture(cachedValue);
+		
+		var lookup = new CompletableFuture<V>();
+		var runningLookup = inFlight.putIfAbsent(key, lookup);
+		if(runningLookup != null)
+			return runningLookup.copy(); // copy so that callers can't complete the shared future
+		
+		// another lookup might have completed between the miss and registering this lookup
+		cachedValue = cache.getIfPresentWithoutStats(key);
+		if(cachedValue != null)
+		{
+			inFlight.remove(key, lookup);
+			lookup.complete(cachedValue);
+			return lookup.copy();
+		}
+		
+		CompletableFuture<V> backingLookup;
+		try
+		{
+			backingLookup = backingSource.getAsync(key);
+		}
+		catch(RuntimeException|Error e) // for example if the backing source rejected the lookup
+		{
+			inFlight.remove(key, lookup);
+			lookup.completeExceptionally(e);
+			return lookup.copy();
+		}
+		
+		backingLookup.whenComplete((value, exception)->
+		{
+			if(exception == null)
+				cache.put(key, value);
+			inFlight.remove(key, lookup);
+			
+			if(exception == null)
+				lookup.complete(value);
+			else
+				lookup.completeExceptionally(exception);
+		});
+		
+		return lookup.copy();
+	}
+	
+	
+	// STATS
+	@API
+	public CacheStats getCacheStats()
+	{
+		return cache.getStats();
+	}
+	
+}
@@ -0,0 +1,119 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.source.io.AsyncIoSource;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the lookups of a blocking source on an executor. The number of concurrent backend calls is bounded by the
+ * executor. Lookups which the executor rejects fail with an IOException.
+ */
+@API
+public class AsyncIoSource_FromBlocking<K, V>
+	implements AsyncIoSource<K, V>, AutoCloseable
+{
+	
+	// DEPENDENCIES
+	private final IoSource<K, V> blockingSource;
+	private final Executor executor;
+	@Nullable
+	private final ExecutorService ownedExecutor;
+	
+	
+	// INIT
+	/**
+	 * Creates a source which runs lookups on the given executor, which stays owned by the caller.
+	 */
+	@API
+	public AsyncIoSource_FromBlocking(IoSource<K, V> blockingSource, Executor executor)
+	{
+		this(blockingSource, executor, null);
+	}
+	
+	private AsyncIoSource_FromBlocking(IoSource<K, V> blockingSource, Executor executor, @Nullable ExecutorService ownedExecutor)
+	{
+		this.blockingSource = blockingSource;
+		this.executor = executor;
+		this.ownedExecutor = ownedExecutor;
+	}
+	
+	/**
+	 * Creates a source which runs lookups on its own pool of daemon threads. The pool is shut down by {@link #close()}.
+	 *
+	 * @param numberOfThreads  the maximum number of concurrent calls to the blocking source
+	 * @param maxQueuedLookups the maximum number of lookups waiting for a thread, further lookups fail
+	 * @param threadName       the name prefix of the pool threads
+	 */
+	@API
+	public static <K, V> AsyncIoSource_FromBlocking<K, V> withThreadPool(
+		IoSource<K, V> blockingSource, int numberOfThreads, int maxQueuedLookups, String threadName)
+	{
+		var threadCount = new AtomicInteger(0);
+		var executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(maxQueuedLookups),
+			r->ThreadUtil.createDaemonThread(r, threadName+"-"+threadCount.incrementAndGet()));
+		return new AsyncIoSource_FromBlocking<>(blockingSource, executor, executor);
+	}
+	
+	
+	// SOURCE
+	@Override
+	public CompletableFuture<V> getAsync(K key)
+	{
+		var future = new CompletableFuture<V>();
+		try
+		{
+			executor.execute(()->load(key, future));
+		}
+		catch(RejectedExecutionException e)
+		{
+			future.completeExceptionally(new IOException("lookup of key "+key+" was rejected by the executor", e));
+		}
+		
+		return future;
+	}
+	
+	private void load(K key, CompletableFuture<V> future)
+	{
+		try
+		{
+			future.complete(blockingSource.get(key));
+		}
+		catch(IOException|RuntimeException e)
+		{
+			future.completeExceptionally(e);
+		}
+		catch(Error e)
+		{
+			// callers waiting for the lookup have to be released before the error propagates
+			future.completeExceptionally(e);
+			throw e;
+		}
+	}
+	
+	
+	// CLOSE
+	/**
+	 * Shuts down the thread pool if this source created it, lookups which are already queued still run. Lookups after
+	 * closing fail. Does nothing for executors passed by the caller.
+	 */
+	@Override
+	public void close()
+	{
+		if(ownedExecutor != null)
+			ownedExecutor.shutdown();
+	}
+	
+}
@@ -1,13 +1,25 @@
 package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
 
+import io.domisum.lib.auxiliumlib.annotations.API;
 import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.datastructures.CacheStats;
 import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
 import io.domisum.lib.auxiliumlib.datastructures.LazyCache;
 import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Caches the values of a backing source in memory. Cache hits don't take a lock; concurrent misses for the same key
+ * share a single call to the backing source, while misses for different keys load in parallel.
+ */
 @RequiredArgsConstructor
 public abstract class IoSource_CacheInMemory<K, V>
 	implements IoSource<K, V>
@@ -17,26 +29,150 @@ public abstract class IoSource_CacheInMemory<K, V>
 	private final IoSource<K, V> backingSource;
 	
 	// CACHE
-	private final LazyCache<K, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+	private final LazyCache<K, V> cache = createCache();
+	@Nullable
+	private final NegativeCache<K> negativeCache = createNegativeCache();
 	
 	
 	// CONSTANT METHODS
 	@Nullable
 	protected abstract ExpirationSettings EXPIRATION_SETTINGS();
 	
+	protected boolean RECORD_STATS()
+	{
+		return false;
+	}
+	
+	/**
+	 * If not null, failed loads are remembered for this duration and rethrown instead of calling the backing source
+	 * again. Repeated failures of a key back off exponentially from this duration.
+	 */
+	@Nullable
+	protected Duration NEGATIVE_CACHE_DURATION()
+	{
+		return null;
+	}
+	
+	
+	// INIT
+	private LazyCache<K, V> createCache()
+	{
+		LazyCache<K, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+		if(RECORD_STATS())
+			cache.enableStats();
+		
+		return cache;
+	}
+	
+	@Nullable
+	private NegativeCache<K> createNegativeCache()
+	{
+		var negativeCacheDuration = NEGATIVE_CACHE_DURATION();
+		return negativeCacheDuration == null ? null : new NegativeCache<>(negativeCacheDuration);
+	}
+	
 	
 	// SOURCE
 	@Override
-	public synchronized V get(K key)
+	public V get(K key)
 		throws IOException
 	{
-		var itemFromCacheOptional = cache.get(key);
-		if(itemFromCacheOptional.isPresent())
-			return itemFromCacheOptional.get();
+		return cache.getIo(key, this::load);
+	}
+	
+	@Override
+	public Map<K, V> getAll(Collection<K> keys)
+		throws IOException
+	{
+		return cache.getAllIo(keys, this::loadAll);
+	}
+	
+	private V load(K key)
+		throws IOException
+	{
+		if(negativeCache == null)
+			return backingSource.get(key);
+		
+		negativeCache.throwIfRecentlyFailed(key);
+		try
+		{
+			var value = backingSource.get(key);
+			negativeCache.recordSuccess(key);
+			return value;
+		}
+		catch(IOException e)
+		{
+			negativeCache.recordFailure(key, e);
+			throw e;
+		}
+	}
+	
+	/**
+	 * Loads the keys which didn't fail recently in one batch. If the batch fails, it doesn't tell which keys caused the
+	 * failure, so the keys are loaded one by one and only the keys which fail again are remembered as failed. If any key
+	 * fails, the values of the other keys are still cached before the failure is thrown.
+	 */
+	private Map<K, V> loadAll(Collection<K> keys)
+		throws IOException
+	{
+		if(negativeCache == null)
+			return backingSource.getAll(keys);
 		
-		var itemFromBackingSource = backingSource.get(key);
-		cache.put(key, itemFromBackingSource);
-		return itemFromBackingSource;
+		var failures = new ArrayList<IOException>();
+		var loadableKeys = new ArrayList<K>();
+		for(var key : keys)
+		{
+			var recentFailure = negativeCache.getRecentFailure(key);
+			if(recentFailure == null)
+				loadableKeys.add(key);
+			else
+				failures.add(recentFailure);
+		}
+		
+		var values = new LinkedHashMap<K, V>();
+		if(!loadableKeys.isEmpty())
+			try
+			{
+				values.putAll(backingSource.getAll(loadableKeys));
+				loadableKeys.forEach(negativeCache::recordSuccess);
+			}
+			catch(IOException ignored)
+			{
+				// the failures of the single loads are thrown instead, they tell which keys failed
+				for(var key : loadableKeys)
+					try
+					{
+						values.put(key, load(key));
+					}
+					catch(IOException e)
+					{
+						failures.add(e);
+					}
+			}
+		
+		if(!failures.isEmpty())
+		{
+			cache.putAll(values);
+			throw batchFailure(failures);
+		}
+		
+		return values;
+	}
+	
+	private static IOException batchFailure(List<IOException> failures)
+	{
+		var batchFailure = new IOException("loading "+failures.size()+" keys of the batch failed", failures.get(0));
+		for(int i = 1; i < failures.size(); i++)
+			batchFailure.addSuppressed(failures.get(i));
+		return batchFailure;
+	}
+	
+	
+	// STATS
+	@API
+	public CacheStats getCacheStats()
+	{
+		return cache.getStats();
 	}
 	
 }
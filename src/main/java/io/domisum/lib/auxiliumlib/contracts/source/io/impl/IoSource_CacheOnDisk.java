@@ -0,0 +1,564 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
+import io.domisum.lib.auxiliumlib.util.FileUtil;
+import io.domisum.lib.auxiliumlib.util.FileUtil.FileType;
+import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the values of a backing source in files, so that cached values survive restarts. Meant to be stacked below
+ * {@link IoSource_CacheInMemory}, which also makes sure that concurrent misses of a key only load once.
+ * <p>
+ * Every value is stored in its own file, named after a hash of the key and an id unique to the write, so that a file
+ * is never overwritten and can be read and written without holding the index lock. The index of all entries is kept
+ * in memory in least recently used order and persisted as a log in the same directory: changes are appended as
+ * fixed size records, and the log is rewritten compactly once it holds considerably more records than entries. When
+ * the values take up more than the maximum directory size, the least recently used entries are deleted. Since entries
+ * have to expire across restarts, expiration uses wall clock time.
+ * <p>
+ * Only files with the extensions used by this cache are ever deleted from the directory. The cache has to be closed
+ * to release the index file.
+ */
+public abstract class IoSource_CacheOnDisk<K, V>
+	implements IoSource<K, V>, AutoCloseable
+{
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(IoSource_CacheOnDisk.class);
+	
+	
+	// CONSTANTS
+	private static final String INDEX_FILE_NAME = "index.log";
+	private static final String VALUE_FILE_EXTENSION = ".value";
+	private static final String TEMP_FILE_EXTENSION = ".tmp";
+	private static final byte RECORD_PUT = 1;
+	private static final byte RECORD_REMOVE = 2;
+	// type, key hash, then file id, size, creation, last use and expiration as longs: 49 bytes
+	private static final int INDEX_RECORD_SIZE_BYTES = 1+16+5*Long.BYTES;
+	private static final int MIN_INDEX_RECORDS_BEFORE_COMPACTION = 1024;
+	private static final long LAST_USED_RECORD_INTERVAL_MILLIS = Duration.ofMinutes(1).toMillis();
+	private static final double RANDOMIZATION_MAX_OFFSET_REL = 0.2;
+	
+	// DEPENDENCIES
+	private final IoSource<K, V> backingSource;
+	private final StringSerdes<V> valueSerdes;
+	private final File directory;
+	
+	// STATE
+	private final Object indexLock = new Object();
+	private final LinkedHashMap<HashCode, DiskEntry> index = new LinkedHashMap<>(16, 0.75f, true); // least recently used first
+	private final AtomicLong nextFileId;
+	private long totalSizeBytes = 0;
+	@Nullable
+	private FileChannel indexChannel;
+	private int indexRecordCount = 0;
+	private boolean closed = false;
+	
+	
+	// CONSTANT METHODS
+	@Nullable
+	protected abstract ExpirationSettings EXPIRATION_SETTINGS();
+	
+	protected abstract long MAX_DIRECTORY_SIZE_BYTES();
+	
+	/**
+	 * Returns a string which uniquely identifies the key, also across restarts.
+	 */
+	protected abstract String getKeyId(K key);
+	
+	
+	// INIT
+	protected IoSource_CacheOnDisk(IoSource<K, V> backingSource, StringSerdes<V> valueSerdes, File directory)
+	{
+		this.backingSource = backingSource;
+		this.valueSerdes = valueSerdes;
+		this.directory = directory;
+		
+		FileUtil.mkdirs(directory);
+		readIndex();
+		deleteUnindexedFiles();
+		
+		long maxFileId = 0;
+		for(var entry : index.values())
+		{
+			totalSizeBytes += entry.sizeBytes;
+			maxFileId = Math.max(maxFileId, entry.fileId);
+		}
+		nextFileId = new AtomicLong(maxFileId+1);
+		
+		var filesToDelete = new ArrayList<File>();
+		synchronized(indexLock)
+		{
+			compactIndex(filesToDelete);
+		}
+		deleteFiles(filesToDelete);
+	}
+	
+	
+	// SOURCE
+	@Override
+	public V get(K key)
+		throws IOException
+	{
+		var hash = hash(key);
+		var cachedValue = readCached(hash);
+		if(cachedValue != null)
+			return cachedValue;
+		
+		var value = backingSource.get(key);
+		writeCached(hash, value);
+		return value;
+	}
+	
+	@API
+	public void invalidate(K key)
+	{
+		var hash = hash(key);
+		var filesToDelete = new ArrayList<File>();
+		synchronized(indexLock)
+		{
+			throwIfClosed();
+			var entry = index.get(hash);
+			if(entry != null)
+				removeEntry(hash, entry, filesToDelete);
+			compactIndexIfDue(filesToDelete);
+		}
+		
+		deleteFiles(filesToDelete);
+	}
+	
+	
+	// CLOSE
+	/**
+	 * Closes the index file. Lookups and invalidations after closing fail, the cached values stay on disk for the next
+	 * start.
+	 */
+	@Override
+	public void close()
+	{
+		synchronized(indexLock)
+		{
+			closed = true;
+			closeIndexChannel();
+		}
+	}
+	
+	private void throwIfClosed()
+	{
+		if(closed)
+			throw new IllegalStateException("disk cache was closed");
+	}
+	
+	
+	// CACHE
+	@Nullable
+	private V readCached(HashCode hash)
+	{
+		long nowMillis = System.currentTimeMillis();
+		var filesToDelete = new ArrayList<File>();
+		DiskEntry entry;
+		synchronized(indexLock)
+		{
+			throwIfClosed();
+			entry = index.get(hash);
+			if(entry == null)
+				return null;
+			
+			if(entry.isExpired(nowMillis, EXPIRATION_SETTINGS()))
+			{
+				removeEntry(hash, entry, filesToDelete);
+				entry = null;
+			}
+			else
+				markAsUsed(hash, entry, nowMillis);
+			compactIndexIfDue(filesToDelete);
+		}
+		
+		deleteFiles(filesToDelete);
+		if(entry == null)
+			return null;
+		
+		try
+		{
+			return valueSerdes.deserialize(FileUtil.readString(getValueFile(hash, entry.fileId)));
+		}
+		catch(UncheckedIOException e) // file was evicted concurrently or can't be read, load it again
+		{
+			return null;
+		}
+		catch(RuntimeException e)
+		{
+			LOGGER.warn("Failed to deserialize cached value, loading it again", e);
+			removeEntryIfUnchanged(hash, entry);
+			return null;
+		}
+	}
+	
+	private void writeCached(HashCode hash, V value)
+	{
+		byte[] serialized = valueSerdes.serialize(value).getBytes(StandardCharsets.UTF_8);
+		if(serialized.length > MAX_DIRECTORY_SIZE_BYTES())
+			return;
+		
+		// the file name is unique to this write and only becomes visible to readers once the entry is indexed
+		long fileId = nextFileId.getAndIncrement();
+		try
+		{
+			FileUtil.writeRaw(getValueFile(hash, fileId), serialized);
+		}
+		catch(UncheckedIOException e)
+		{
+			LOGGER.warn("Failed to write cached value to disk, continuing without caching it", e);
+			return;
+		}
+		
+		long nowMillis = System.currentTimeMillis();
+		var entry = new DiskEntry(fileId, serialized.length, nowMillis, nowMillis, determineExpirationMillis());
+		var filesToDelete = new ArrayList<File>();
+		boolean closedWhileWriting;
+		synchronized(indexLock)
+		{
+			closedWhileWriting = closed;
+			if(closedWhileWriting)
+				filesToDelete.add(getValueFile(hash, fileId));
+			else
+			{
+				var previousEntry = index.put(hash, entry);
+				if(previousEntry != null)
+				{
+					totalSizeBytes -= previousEntry.sizeBytes;
+					filesToDelete.add(getValueFile(hash, previousEntry.fileId));
+				}
+				totalSizeBytes += entry.sizeBytes;
+				appendIndexRecord(RECORD_PUT, hash, entry);
+				
+				evictIfOverMaximumSize(filesToDelete);
+				compactIndexIfDue(filesToDelete);
+			}
+		}
+		
+		deleteFiles(filesToDelete);
+		if(closedWhileWriting)
+			throw new IllegalStateException("disk cache was closed");
+	}
+	
+	private void evictIfOverMaximumSize(List<File> filesToDelete)
+	{
+		var iterator = index.entrySet().iterator();
+		while(totalSizeBytes > MAX_DIRECTORY_SIZE_BYTES() && iterator.hasNext())
+		{
+			var eldest = iterator.next();
+			iterator.remove();
+			totalSizeBytes -= eldest.getValue().sizeBytes;
+			appendIndexRecord(RECORD_REMOVE, eldest.getKey(), null);
+			filesToDelete.add(getValueFile(eldest.getKey(), eldest.getValue().fileId));
+		}
+	}
+	
+	private void markAsUsed(HashCode hash, DiskEntry entry, long nowMillis)
+	{
+		entry.lastUsedMillis = nowMillis;
+		
+		// the time of last use is only needed across restarts, so it doesn't have to be recorded on every read
+		if(nowMillis-entry.recordedLastUsedMillis >= LAST_USED_RECORD_INTERVAL_MILLIS)
+		{
+			entry.recordedLastUsedMillis = nowMillis;
+			appendIndexRecord(RECORD_PUT, hash, entry);
+		}
+	}
+	
+	private void removeEntry(HashCode hash, DiskEntry entry, List<File> filesToDelete)
+	{
+		index.remove(hash);
+		totalSizeBytes -= entry.sizeBytes;
+		appendIndexRecord(RECORD_REMOVE, hash, null);
+		filesToDelete.add(getValueFile(hash, entry.fileId));
+	}
+	
+	private void removeEntryIfUnchanged(HashCode hash, DiskEntry entry)
+	{
+		var filesToDelete = new ArrayList<File>();
+		synchronized(indexLock)
+		{
+			if(index.get(hash) == entry)
+				removeEntry(hash, entry, filesToDelete);
+		}
+		
+		deleteFiles(filesToDelete);
+	}
+	
+	private long determineExpirationMillis()
+	{
+		var expirationSettings = EXPIRATION_SETTINGS();
+		if(expirationSettings == null)
+			return DiskEntry.NEVER;
+		
+		var expirationDuration = expirationSettings.getExpirationDuration();
+		if(expirationSettings.shouldRandomizeExpirationDuration())
+			expirationDuration = RandomUtil.distributeRel(expirationDuration, RANDOMIZATION_MAX_OFFSET_REL);
+		return expirationDuration.toMillis();
+	}
+	
+	
+	// FILES
+	private HashCode hash(K key)
+	{
+		return Hashing.murmur3_128().hashString(getKeyId(key), StandardCharsets.UTF_8);
+	}
+	
+	private File getValueFile(HashCode hash, long fileId)
+	{
+		return new File(directory, hash+"-"+fileId+VALUE_FILE_EXTENSION);
+	}
+	
+	private File getIndexFile()
+	{
+		return new File(directory, INDEX_FILE_NAME);
+	}
+	
+	private static void deleteFiles(List<File> files)
+	{
+		for(var file : files)
+			try
+			{
+				FileUtil.deleteFile(file);
+			}
+			catch(UncheckedIOException e)
+			{
+				LOGGER.warn("Failed to delete cached value file", e);
+			}
+	}
+	
+	private void deleteUnindexedFiles()
+	{
+		var indexedFileNames = new HashSet<String>();
+		for(var entry : index.entrySet())
+			indexedFileNames.add(getValueFile(entry.getKey(), entry.getValue().fileId).getName());
+		
+		var unindexedFiles = new ArrayList<File>();
+		for(var file : FileUtil.listFilesFlat(directory, FileType.FILE))
+		{
+			// other files in the directory don't belong to this cache
+			String name = file.getName();
+			boolean ownFile = name.endsWith(VALUE_FILE_EXTENSION) || name.endsWith(TEMP_FILE_EXTENSION);
+			if(ownFile && !indexedFileNames.contains(name))
+				unindexedFiles.add(file);
+		}
+		
+		deleteFiles(unindexedFiles);
+	}
+	
+	
+	// INDEX
+	private void readIndex()
+	{
+		var indexFile = getIndexFile();
+		if(!indexFile.exists())
+			return;
+		
+		try
+		{
+			// an incomplete record at the end is left over from a crash while appending, it is ignored
+			var buffer = ByteBuffer.wrap(FileUtil.readRaw(indexFile));
+			while(buffer.remaining() >= INDEX_RECORD_SIZE_BYTES)
+			{
+				byte type = buffer.get();
+				byte[] hashBytes = new byte[16];
+				buffer.get(hashBytes);
+				var hash = HashCode.fromBytes(hashBytes);
+				var entry = new DiskEntry(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+				
+				if(type == RECORD_PUT)
+					index.put(hash, entry);
+				else if(type == RECORD_REMOVE)
+					index.remove(hash);
+				else
+				{
+					LOGGER.warn("Disk cache index is corrupt, ignoring it from record {} on", indexRecordCount);
+					break;
+				}
+				indexRecordCount++;
+			}
+		}
+		catch(UncheckedIOException e)
+		{
+			LOGGER.warn("Failed to read disk cache index, starting with empty cache", e);
+			index.clear();
+		}
+		
+		index.entrySet().removeIf(e->!getValueFile(e.getKey(), e.getValue().fileId).exists());
+	}
+	
+	private void appendIndexRecord(byte type, HashCode hash, @Nullable DiskEntry entry)
+	{
+		if(indexChannel == null)
+			return;
+		
+		var buffer = ByteBuffer.allocate(INDEX_RECORD_SIZE_BYTES);
+		putIndexRecord(buffer, type, hash, entry);
+		buffer.flip();
+		try
+		{
+			while(buffer.hasRemaining())
+				indexChannel.write(buffer);
+			indexRecordCount++;
+		}
+		catch(IOException e)
+		{
+			LOGGER.warn("Failed to append to disk cache index", e);
+		}
+	}
+	
+	private static void putIndexRecord(ByteBuffer buffer, byte type, HashCode hash, @Nullable DiskEntry entry)
+	{
+		buffer.put(type);
+		buffer.put(hash.asBytes());
+		buffer.putLong(entry == null ? 0 : entry.fileId);
+		buffer.putLong(entry == null ? 0 : entry.sizeBytes);
+		buffer.putLong(entry == null ? 0 : entry.createdMillis);
+		buffer.putLong(entry == null ? 0 : entry.lastUsedMillis);
+		buffer.putLong(entry == null ? 0 : entry.expirationMillis);
+	}
+	
+	private void compactIndexIfDue(List<File> filesToDelete)
+	{
+		if(!closed && indexRecordCount > MIN_INDEX_RECORDS_BEFORE_COMPACTION && indexRecordCount > 2*index.size())
+			compactIndex(filesToDelete);
+	}
+	
+	/**
+	 * Rewrites the index log with one record per entry, in least recently used order, leaving out expired entries.
+	 * Compaction only happens once the log holds twice as many records as there are entries, so its cost is spread over
+	 * the appends in between.
+	 */
+	private void compactIndex(List<File> filesToDelete)
+	{
+		removeExpiredEntries(filesToDelete);
+		
+		var buffer = ByteBuffer.allocate(index.size()*INDEX_RECORD_SIZE_BYTES);
+		for(var entry : index.entrySet())
+		{
+			entry.getValue().recordedLastUsedMillis = entry.getValue().lastUsedMillis;
+			putIndexRecord(buffer, RECORD_PUT, entry.getKey(), entry.getValue());
+		}
+		
+		closeIndexChannel();
+		try
+		{
+			// write to temporary file first, so that a crash while writing doesn't leave a corrupt index
+			var tempFile = new File(directory, INDEX_FILE_NAME+TEMP_FILE_EXTENSION);
+			FileUtil.writeRaw(tempFile, buffer.array());
+			FileUtil.moveFile(tempFile, getIndexFile());
+			indexRecordCount = index.size();
+		}
+		catch(UncheckedIOException e)
+		{
+			LOGGER.warn("Failed to compact disk cache index, continuing to append to the old one", e);
+		}
+		
+		try
+		{
+			indexChannel = FileChannel.open(getIndexFile().toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		}
+		catch(IOException e)
+		{
+			LOGGER.warn("Failed to open disk cache index, changes won't survive a restart", e);
+		}
+	}
+	
+	private void removeExpiredEntries(List<File> filesToDelete)
+	{
+		long nowMillis = System.currentTimeMillis();
+		var expirationSettings = EXPIRATION_SETTINGS();
+		var iterator = index.entrySet().iterator();
+		while(iterator.hasNext())
+		{
+			// no remove record needed, the index is rewritten right after
+			var entry = iterator.next();
+			if(!entry.getValue().isExpired(nowMillis, expirationSettings))
+				continue;
+			
+			iterator.remove();
+			totalSizeBytes -= entry.getValue().sizeBytes;
+			filesToDelete.add(getValueFile(entry.getKey(), entry.getValue().fileId));
+		}
+	}
+	
+	private void closeIndexChannel()
+	{
+		if(indexChannel == null)
+			return;
+		
+		try
+		{
+			indexChannel.close();
+		}
+		catch(IOException e)
+		{
+			LOGGER.warn("Failed to close disk cache index", e);
+		}
+		indexChannel = null;
+	}
+	
+	
+	// ENTRY
+	private static class DiskEntry
+	{
+		
+		private static final long NEVER = -1;
+		
+		private final long fileId;
+		private final long sizeBytes;
+		private final long createdMillis;
+		private long lastUsedMillis;
+		private long recordedLastUsedMillis;
+		private final long expirationMillis;
+		
+		
+		// INIT
+		public DiskEntry(long fileId, long sizeBytes, long createdMillis, long lastUsedMillis, long expirationMillis)
+		{
+			this.fileId = fileId;
+			this.sizeBytes = sizeBytes;
+			this.createdMillis = createdMillis;
+			this.lastUsedMillis = lastUsedMillis;
+			recordedLastUsedMillis = lastUsedMillis;
+			this.expirationMillis = expirationMillis;
+		}
+		
+		
+		// ENTRY
+		public boolean isExpired(long nowMillis, @Nullable ExpirationSettings expirationSettings)
+		{
+			if(expirationMillis == NEVER || expirationSettings == null)
+				return false;
+			
+			long referenceMillis = expirationSettings.shouldOnlyExpireUnused() ? lastUsedMillis : createdMillis;
+			return nowMillis-referenceMillis > expirationMillis;
+		}
+		
+	}
+	
+}
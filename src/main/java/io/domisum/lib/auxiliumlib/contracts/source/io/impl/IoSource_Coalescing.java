@@ -0,0 +1,260 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.annotations.ForTesting;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoOptional;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gathers concurrent lookups into batches which are loaded with a single {@link IoSource#getAll(Collection)} call on
+ * the backing source.
+ * <p>
+ * A lookup while no batch is loading has nothing to coalesce with and is loaded right away, so lone lookups don't wait.
+ * Lookups while another batch is loading gather in a new batch, which is loaded once the other batches are done, the
+ * batch window has passed or the batch is full, whichever comes first. The first lookup of a batch loads it on its own
+ * thread. Lookups of the same key in one batch are only loaded once. If the batch load fails, every lookup fails with
+ * its own exception, which has the failure of the batch as its cause.
+ */
+@API
+public final class IoSource_Coalescing<K, V>
+	implements IoSource<K, V>
+{
+	
+	// DEPENDENCIES
+	private final IoSource<K, V> backingSource;
+	
+	// SETTINGS
+	private final Duration batchWindow;
+	private final int maxBatchSize;
+	
+	// STATE
+	private final Lock lock = new ReentrantLock();
+	@Nullable
+	private Batch openBatch;
+	private int loadingBatches = 0;
+	
+	
+	// INIT
+	private IoSource_Coalescing(IoSource<K, V> backingSource, Duration batchWindow, int maxBatchSize)
+	{
+		this.backingSource = backingSource;
+		this.batchWindow = batchWindow;
+		this.maxBatchSize = maxBatchSize;
+	}
+	
+	/**
+	 * @param batchWindow  the maximum time a lookup waits for other lookups to join its batch while another batch loads
+	 * @param maxBatchSize the number of distinct keys at which a batch is loaded without waiting any longer
+	 */
+	@API
+	public static <K, V> IoSource_Coalescing<K, V> of(IoSource<K, V> backingSource, Duration batchWindow, int maxBatchSize)
+	{
+		ValidationUtil.notNull(backingSource, "backingSource");
+		ValidationUtil.notNull(batchWindow, "batchWindow");
+		if(maxBatchSize < 1)
+			throw new IllegalArgumentException("maxBatchSize has to be at least 1, but was "+maxBatchSize);
+		
+		return new IoSource_Coalescing<>(backingSource, batchWindow, maxBatchSize);
+	}
+	
+	
+	// SOURCE
+	@Override
+	public V get(K key)
+		throws IOException
+	{
+		return getCoalesced(key).getOrThrow();
+	}
+	
+	@Override
+	public Map<K, V> getAll(Collection<K> keys)
+		throws IOException
+	{
+		return backingSource.getAll(keys);
+	}
+	
+	/**
+	 * Same as {@link #get(Object)}, but returns the result of the lookup instead of throwing.
+	 */
+	@API
+	public IoOptional<V> getCoalesced(K key)
+	{
+		Batch batch;
+		boolean leader = false;
+		CompletableFuture<IoOptional<V>> result;
+		lock.lock();
+		try
+		{
+			if(openBatch == null)
+			{
+				openBatch = new Batch();
+				leader = true;
+			}
+			
+			batch = openBatch;
+			batch.lookups++;
+			result = batch.requests.computeIfAbsent(key, k->new CompletableFuture<>());
+			if(batch.requests.size() >= maxBatchSize || loadingBatches == 0)
+				batch.close();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		
+		if(leader)
+		{
+			batch.awaitClosed();
+			batch.load();
+		}
+		
+		IoOptional<V> loaded;
+		try
+		{
+			loaded = result.join();
+		}
+		catch(CompletionException e)
+		{
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw e;
+		}
+		
+		// the failure is shared by the whole batch, so every lookup gets its own exception and stack trace
+		if(loaded.isEmpty())
+			return IoOptional.ofException(new IOException("loading "+key+" in a batch failed", loaded.getException()));
+		return loaded;
+	}
+	
+	@ForTesting
+	int getNumberOfWaitingLookups()
+	{
+		lock.lock();
+		try
+		{
+			return openBatch == null ? 0 : openBatch.lookups;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	
+	// BATCH
+	private class Batch
+	{
+		
+		private final Map<K, CompletableFuture<IoOptional<V>>> requests = new LinkedHashMap<>();
+		private final Condition closedCondition = lock.newCondition();
+		private int lookups = 0;
+		private boolean closed = false;
+		
+		
+		// LIFECYCLE
+		/**
+		 * Has to be called while holding the lock.
+		 */
+		public void close()
+		{
+			closed = true;
+			openBatch = null;
+			loadingBatches++;
+			closedCondition.signal();
+		}
+		
+		public void awaitClosed()
+		{
+			lock.lock();
+			try
+			{
+				long remainingNanos = batchWindow.toNanos();
+				while(!closed && remainingNanos > 0)
+					remainingNanos = closedCondition.awaitNanos(remainingNanos);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			finally
+			{
+				if(!closed)
+					close();
+				lock.unlock();
+			}
+		}
+		
+		
+		// LOAD
+		public void load()
+		{
+			try
+			{
+				loadFromBackingSource();
+			}
+			finally
+			{
+				onLoaded();
+			}
+		}
+		
+		private void loadFromBackingSource()
+		{
+			var keys = new ArrayList<>(requests.keySet());
+			try
+			{
+				var values = backingSource.getAll(keys);
+				for(var request : requests.entrySet())
+				{
+					var value = values.get(request.getKey());
+					request.getValue().complete(value == null ?
+						IoOptional.ofException(new IOException("backing source returned no value for key "+request.getKey())) :
+						IoOptional.of(value));
+				}
+			}
+			catch(IOException e)
+			{
+				for(var request : requests.values())
+					request.complete(IoOptional.ofException(e));
+			}
+			catch(RuntimeException|Error e)
+			{
+				for(var request : requests.values())
+					request.completeExceptionally(e);
+				throw e;
+			}
+		}
+		
+		private void onLoaded()
+		{
+			lock.lock();
+			try
+			{
+				// lookups which gathered while batches were loading have nothing left to wait for
+				loadingBatches--;
+				if(loadingBatches == 0 && openBatch != null)
+					openBatch.close();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,51 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.source.io.AsyncIoSource;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Blocks on the lookups of an async source, rethrowing the exception the lookup failed with.
+ */
+@API
+@RequiredArgsConstructor
+public class IoSource_FromAsync<K, V>
+	implements IoSource<K, V>
+{
+	
+	// DEPENDENCIES
+	private final AsyncIoSource<K, V> asyncSource;
+	
+	
+	// SOURCE
+	@Override
+	public V get(K key)
+		throws IOException
+	{
+		try
+		{
+			return asyncSource.getAsync(key).join();
+		}
+		catch(CompletionException e)
+		{
+			var cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException) cause;
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if(cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException("async lookup of key "+key+" failed", cause);
+		}
+		catch(CancellationException e)
+		{
+			throw new IOException("async lookup of key "+key+" was cancelled", e);
+		}
+	}
+	
+}
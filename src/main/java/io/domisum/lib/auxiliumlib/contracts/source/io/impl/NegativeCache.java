@@ -0,0 +1,153 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import com.google.common.base.Ticker;
+import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers failed loads for a while, so that a failing backend isn't called again on every request. Consecutive
+ * failures of a key double the time until the next attempt, up to a maximum, with some jitter so that retries of
+ * many keys don't happen all at once.
+ * <p>
+ * Failures of keys which aren't requested again are forgotten once they are older than twice the maximum backoff, so
+ * that an outage affecting many distinct keys doesn't grow the cache without bound.
+ */
+final class NegativeCache<K>
+{
+	
+	// CONSTANTS
+	private static final int MAX_BACKOFF_MULTIPLIER = 32;
+	private static final double JITTER_MAX_OFFSET_REL = 0.2;
+	private static final int MINIMUM_PRUNE_SIZE = 64;
+	
+	// SETTINGS
+	private final Duration baseDuration;
+	private final Ticker ticker;
+	private final long forgetAfterNanos;
+	
+	// STATE
+	private final Map<K, Failure> failures = new ConcurrentHashMap<>();
+	private volatile int nextPruneSize = MINIMUM_PRUNE_SIZE;
+	
+	
+	// INIT
+	NegativeCache(Duration baseDuration)
+	{
+		this(baseDuration, Ticker.systemTicker());
+	}
+	
+	NegativeCache(Duration baseDuration, Ticker ticker)
+	{
+		if(baseDuration.isNegative() || baseDuration.isZero())
+			throw new IllegalArgumentException("negative cache duration has to be positive, but was "+baseDuration);
+		this.baseDuration = baseDuration;
+		this.ticker = ticker;
+		forgetAfterNanos = baseDuration.multipliedBy(MAX_BACKOFF_MULTIPLIER*2).toNanos();
+	}
+	
+	
+	// CACHE
+	/**
+	 * Throws if the key failed recently. The thrown exception is new for every call, with the remembered failure as
+	 * its cause, so that the stack traces of different callers don't get mixed up.
+	 */
+	void throwIfRecentlyFailed(K key)
+		throws IOException
+	{
+		var recentFailure = getRecentFailure(key);
+		if(recentFailure != null)
+			throw recentFailure;
+	}
+	
+	/**
+	 * Same as {@link #throwIfRecentlyFailed(Object)}, but returns the exception instead of throwing it, or null if the
+	 * key didn't fail recently.
+	 */
+	@Nullable
+	IOException getRecentFailure(K key)
+	{
+		var failure = failures.get(key);
+		if(failure == null || !failure.isInBackoff(ticker.read()))
+			return null;
+		
+		return new IOException("loading "+key+" failed recently, not retrying yet", failure.exception);
+	}
+	
+	void recordFailure(K key, IOException exception)
+	{
+		long nowNanos = ticker.read();
+		failures.compute(key, (k, previous)->
+		{
+			int consecutiveFailures = previous == null ? 1 : previous.consecutiveFailures+1;
+			return new Failure(exception, consecutiveFailures, nowNanos, backoffNanos(consecutiveFailures));
+		});
+		
+		if(failures.size() >= nextPruneSize)
+			prune(nowNanos);
+	}
+	
+	void recordSuccess(K key)
+	{
+		failures.remove(key);
+	}
+	
+	int size()
+	{
+		return failures.size();
+	}
+	
+	
+	// INTERNAL
+	private long backoffNanos(int consecutiveFailures)
+	{
+		long multiplier = Math.min(1L<<Math.min(consecutiveFailures-1, 30), MAX_BACKOFF_MULTIPLIER);
+		var backoff = RandomUtil.distributeRel(baseDuration.multipliedBy(multiplier), JITTER_MAX_OFFSET_REL);
+		return backoff.toNanos();
+	}
+	
+	/**
+	 * Forgets old failures. The next prune only happens once the number of failures has doubled, so that the cost of
+	 * pruning is spread over the failures recorded in between.
+	 */
+	private void prune(long nowNanos)
+	{
+		failures.values().removeIf(f->nowNanos-f.failedAtNanos > forgetAfterNanos);
+		nextPruneSize = Math.max(MINIMUM_PRUNE_SIZE, failures.size()*2);
+	}
+	
+	
+	// FAILURE
+	private static class Failure
+	{
+		
+		private final IOException exception;
+		private final int consecutiveFailures;
+		private final long failedAtNanos;
+		private final long backoffNanos;
+		
+		
+		// INIT
+		public Failure(IOException exception, int consecutiveFailures, long failedAtNanos, long backoffNanos)
+		{
+			this.exception = exception;
+			this.consecutiveFailures = consecutiveFailures;
+			this.failedAtNanos = failedAtNanos;
+			this.backoffNanos = backoffNanos;
+		}
+		
+		
+		// FAILURE
+		public boolean isInBackoff(long nowNanos)
+		{
+			// compare elapsed time instead of points in time, which is safe if the ticker overflows
+			return nowNanos-failedAtNanos < backoffNanos;
+		}
+		
+	}
+	
+}
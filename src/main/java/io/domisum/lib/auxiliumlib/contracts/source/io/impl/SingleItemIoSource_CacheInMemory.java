@@ -1,13 +1,20 @@
 package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
 
+import io.domisum.lib.auxiliumlib.annotations.API;
 import io.domisum.lib.auxiliumlib.contracts.source.io.SingleItemIoSource;
+import io.domisum.lib.auxiliumlib.datastructures.CacheStats;
 import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
 import io.domisum.lib.auxiliumlib.datastructures.LazyCache;
 import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.time.Duration;
 
+/**
+ * Caches the item of a backing source in memory. Cache hits don't take a lock; concurrent misses share a single call
+ * to the backing source.
+ */
 @RequiredArgsConstructor
 public abstract class SingleItemIoSource_CacheInMemory<V>
 	implements SingleItemIoSource<V>
@@ -20,26 +27,83 @@ public abstract class SingleItemIoSource_CacheInMemory<V>
 	private final SingleItemIoSource<V> backingSource;
 	
 	// CACHE
-	private final LazyCache<String, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+	private final LazyCache<String, V> cache = createCache();
+	@Nullable
+	private final NegativeCache<String> negativeCache = createNegativeCache();
 	
 	
 	// CONSTANT METHODS
 	@Nullable
 	protected abstract ExpirationSettings EXPIRATION_SETTINGS();
 	
+	protected boolean RECORD_STATS()
+	{
+		return false;
+	}
+	
+	/**
+	 * If not null, a failed load is remembered for this duration and rethrown instead of calling the backing source
+	 * again. Repeated failures back off exponentially from this duration.
+	 */
+	@Nullable
+	protected Duration NEGATIVE_CACHE_DURATION()
+	{
+		return null;
+	}
+	
+	
+	// INIT
+	private LazyCache<String, V> createCache()
+	{
+		LazyCache<String, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+		if(RECORD_STATS())
+			cache.enableStats();
+		
+		return cache;
+	}
+	
+	@Nullable
+	private NegativeCache<String> createNegativeCache()
+	{
+		var negativeCacheDuration = NEGATIVE_CACHE_DURATION();
+		return negativeCacheDuration == null ? null : new NegativeCache<>(negativeCacheDuration);
+	}
+	
 	
 	// SOURCE
 	@Override
-	public synchronized V get()
+	public V get()
+		throws IOException
+	{
+		return cache.getIo(KEY, k->load());
+	}
+	
+	private V load()
 		throws IOException
 	{
-		var itemFromCacheOptional = cache.get(KEY);
-		if(itemFromCacheOptional.isPresent())
-			return itemFromCacheOptional.get();
+		if(negativeCache == null)
+			return backingSource.get();
 		
-		var itemFromBackingSource = backingSource.get();
-		cache.put(KEY, itemFromBackingSource);
-		return itemFromBackingSource;
+		negativeCache.throwIfRecentlyFailed(KEY);
+		try
+		{
+			var value = backingSource.get();
+			negativeCache.recordSuccess(KEY);
+			return value;
+		}
+		catch(IOException e)
+		{
+			negativeCache.recordFailure(KEY, e);
+			throw e;
+		}
+	}
+	
+	
+	// STATS
+	@API
+	public CacheStats getCacheStats()
+	{
+		return cache.getStats();
 	}
 	
 }
@@ -1,9 +1,23 @@
 package io.domisum.lib.auxiliumlib.contracts.source.optional;
 
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+import java.util.Map;
+
 public interface OptionalStorage<K, V>
 	extends OptionalSource<K, V>
 {
 	
 	void store(K key, V element);
 	
+	/**
+	 * Stores all given elements. Implementations which can write several elements at once should override this.
+	 */
+	@API
+	default void storeAll(Map<K, V> elements)
+	{
+		for(var entry : elements.entrySet())
+			store(entry.getKey(), entry.getValue());
+	}
+	
 }
@@ -0,0 +1,118 @@
+package io.domisum.lib.auxiliumlib.contracts.source.optional.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalKeyedValueStorage;
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalStorage;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Variant of {@link OptionalStorage_WriteBehind} for storages which derive the key from the element. Buffering,
+ * flushing and closing work the same, the key function is only used to find pending elements on reads.
+ */
+@API
+public final class OptionalKeyedValueStorage_WriteBehind<K, V>
+	implements OptionalKeyedValueStorage<K, V>, AutoCloseable
+{
+	
+	// DEPENDENCIES
+	private final OptionalStorage_WriteBehind<K, V> writeBehind;
+	private final Function<V, K> keyFunction;
+	
+	
+	// INIT
+	private OptionalKeyedValueStorage_WriteBehind(OptionalStorage_WriteBehind<K, V> writeBehind, Function<V, K> keyFunction)
+	{
+		this.writeBehind = writeBehind;
+		this.keyFunction = keyFunction;
+	}
+	
+	/**
+	 * @param keyFunction the function deriving the key from an element, the same as used by the backing storage
+	 * @see OptionalStorage_WriteBehind#of(OptionalStorage, int, Duration, int)
+	 */
+	@API
+	public static <K, V> OptionalKeyedValueStorage_WriteBehind<K, V> of(
+		OptionalKeyedValueStorage<K, V> backingStorage, Function<V, K> keyFunction,
+		int maxBatchSize, Duration flushInterval, int maxPendingElements)
+	{
+		ValidationUtil.notNull(backingStorage, "backingStorage");
+		ValidationUtil.notNull(keyFunction, "keyFunction");
+		
+		var writeBehind = OptionalStorage_WriteBehind.of(new KeyedStorageAdapter<>(backingStorage),
+			maxBatchSize, flushInterval, maxPendingElements);
+		return new OptionalKeyedValueStorage_WriteBehind<>(writeBehind, keyFunction);
+	}
+	
+	
+	// STORAGE
+	@Override
+	public Optional<V> get(K key)
+	{
+		return writeBehind.get(key);
+	}
+	
+	@Override
+	public void store(V element)
+	{
+		ValidationUtil.notNull(element, "element");
+		writeBehind.store(keyFunction.apply(element), element);
+	}
+	
+	
+	// FLUSH
+	/**
+	 * @see OptionalStorage_WriteBehind#flush()
+	 */
+	@API
+	public void flush()
+	{
+		writeBehind.flush();
+	}
+	
+	/**
+	 * @see OptionalStorage_WriteBehind#close()
+	 */
+	@Override
+	public void close()
+	{
+		writeBehind.close();
+	}
+	
+	
+	// GETTERS
+	@API
+	public int getPendingCount()
+	{
+		return writeBehind.getPendingCount();
+	}
+	
+	
+	// ADAPTER
+	@RequiredArgsConstructor
+	private static class KeyedStorageAdapter<K, V>
+		implements OptionalStorage<K, V>
+	{
+		
+		private final OptionalKeyedValueStorage<K, V> storage;
+		
+		
+		@Override
+		public Optional<V> get(K key)
+		{
+			return storage.get(key);
+		}
+		
+		@Override
+		public void store(K key, V element)
+		{
+			storage.store(element);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,628 @@
+package io.domisum.lib.auxiliumlib.contracts.source.optional.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.serdes.ByteArraySerdes;
+import io.domisum.lib.auxiliumlib.contracts.serdes.InputStreamSerdes;
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalStorage;
+import io.domisum.lib.auxiliumlib.util.BufferUtil;
+import io.domisum.lib.auxiliumlib.util.FileUtil;
+import io.domisum.lib.auxiliumlib.util.FileUtil.FileType;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key value storage which appends every store as a record to memory mapped segment files. An index from keys
+ * to the location of their latest record is kept in memory.
+ * <p>
+ * Every segment starts with a header recording its size, so segments written with a different segment size are still
+ * read correctly. On opening, the index is rebuilt by replaying all segments. Replay of a segment stops at the first
+ * record with an invalid checksum, so a record which was only partially written before a crash is discarded.
+ * <p>
+ * Sealed segments in which most records have been superseded are compacted in the background by copying their live
+ * records to the end of the log and deleting the segment. Compaction reads the sealed segment without holding the
+ * lock and only takes it for short batches of appends, so stores and reads continue while a segment is compacted.
+ */
+@API
+public final class OptionalStorage_AppendOnlyLog<K, V>
+	implements OptionalStorage<K, V>, AutoCloseable
+{
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(OptionalStorage_AppendOnlyLog.class);
+	
+	
+	// CONSTANTS
+	private static final int DEFAULT_SEGMENT_SIZE_BYTES = 64*1024*1024;
+	private static final int SEGMENT_MAGIC = 0x414f4c31;
+	private static final int SEGMENT_HEADER_SIZE_BYTES = 2*Integer.BYTES;
+	private static final int RECORD_HEADER_SIZE_BYTES = 3*Integer.BYTES;
+	private static final String SEGMENT_FILE_EXTENSION = ".segment";
+	private static final Pattern SEGMENT_FILE_NAME_PATTERN = Pattern.compile("(\\d{1,9})"+Pattern.quote(SEGMENT_FILE_EXTENSION));
+	private static final double COMPACTION_LIVE_RATIO_THRESHOLD = 0.5;
+	private static final Duration COMPACTION_INTERVAL = Duration.ofSeconds(10);
+	private static final int COMPACTION_BATCH_SIZE = 256;
+	
+	// DEPENDENCIES
+	private final File directory;
+	private final StringSerdes<K> keySerdes;
+	private final ByteArraySerdes<V> valueSerdes;
+	
+	// SETTINGS
+	private final int segmentSizeBytes;
+	
+	// STATE
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<K, RecordLocation> index = new HashMap<>();
+	private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+	private Segment activeSegment;
+	private volatile boolean closed = false;
+	private final Lock compactionLock = new ReentrantLock();
+	private final Thread compactionThread;
+	
+	
+	// INIT
+	private OptionalStorage_AppendOnlyLog(File directory, int segmentSizeBytes, StringSerdes<K> keySerdes, ByteArraySerdes<V> valueSerdes)
+	{
+		this.directory = directory;
+		this.segmentSizeBytes = segmentSizeBytes;
+		this.keySerdes = keySerdes;
+		this.valueSerdes = valueSerdes;
+		
+		FileUtil.mkdirs(directory);
+		replay();
+		compactionThread = ThreadUtil.createAndStartDaemonThread(this::runCompaction, "appendOnlyLog-compaction");
+	}
+	
+	@API
+	public static <K, V> OptionalStorage_AppendOnlyLog<K, V> open(File directory, StringSerdes<K> keySerdes, StringSerdes<V> valueSerdes)
+	{
+		return open(directory, DEFAULT_SEGMENT_SIZE_BYTES, keySerdes, valueSerdes);
+	}
+	
+	/**
+	 * @param segmentSizeBytes the size of segments created from now on, existing segments keep the size they were
+	 *                         created with
+	 */
+	@API
+	public static <K, V> OptionalStorage_AppendOnlyLog<K, V> open(
+		File directory, int segmentSizeBytes, StringSerdes<K> keySerdes, StringSerdes<V> valueSerdes)
+	{
+		ValidationUtil.notNull(valueSerdes, "valueSerdes");
+		return open(directory, segmentSizeBytes, keySerdes, ByteArraySerdes.of(valueSerdes));
+	}
+	
+	@API
+	public static <K, V> OptionalStorage_AppendOnlyLog<K, V> open(File directory, StringSerdes<K> keySerdes, InputStreamSerdes<V> valueSerdes)
+	{
+		ValidationUtil.notNull(valueSerdes, "valueSerdes");
+		return open(directory, DEFAULT_SEGMENT_SIZE_BYTES, keySerdes, ByteArraySerdes.of(valueSerdes));
+	}
+	
+	private static <K, V> OptionalStorage_AppendOnlyLog<K, V> open(
+		File directory, int segmentSizeBytes, StringSerdes<K> keySerdes, ByteArraySerdes<V> valueSerdes)
+	{
+		ValidationUtil.notNull(directory, "directory");
+		ValidationUtil.notNull(keySerdes, "keySerdes");
+		if(segmentSizeBytes <= SEGMENT_HEADER_SIZE_BYTES+RECORD_HEADER_SIZE_BYTES)
+			throw new IllegalArgumentException("segmentSizeBytes is too small: "+segmentSizeBytes);
+		
+		return new OptionalStorage_AppendOnlyLog<>(directory, segmentSizeBytes, keySerdes, valueSerdes);
+	}
+	
+	
+	// STORAGE
+	@Override
+	public Optional<V> get(K key)
+	{
+		byte[] valueBytes;
+		lock.readLock().lock();
+		try
+		{
+			if(closed) // segments are unmapped on close, reading them would crash
+				throw new IllegalStateException("can't read elements after storage was closed");
+			
+			var location = index.get(key);
+			if(location == null)
+				return Optional.empty();
+			
+			valueBytes = location.segment.readValue(location);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		return Optional.of(valueSerdes.deserialize(valueBytes));
+	}
+	
+	@Override
+	public void store(K key, V element)
+	{
+		storeAll(Map.of(key, element));
+	}
+	
+	@Override
+	public void storeAll(Map<K, V> elements)
+	{
+		var records = new ArrayList<Map.Entry<K, byte[][]>>();
+		for(var entry : elements.entrySet())
+		{
+			byte[] keyBytes = keySerdes.serialize(entry.getKey()).getBytes(StandardCharsets.UTF_8);
+			byte[] valueBytes = valueSerdes.serialize(entry.getValue());
+			if(SEGMENT_HEADER_SIZE_BYTES+RECORD_HEADER_SIZE_BYTES+keyBytes.length+valueBytes.length > segmentSizeBytes)
+				throw new IllegalArgumentException("element for key "+entry.getKey()+" is larger than a segment");
+			records.add(Map.entry(entry.getKey(), new byte[][] {keyBytes, valueBytes}));
+		}
+		
+		lock.writeLock().lock();
+		try
+		{
+			if(closed)
+				throw new IllegalStateException("can't store elements after storage was closed");
+			
+			for(var record : records)
+				append(record.getKey(), record.getValue()[0], record.getValue()[1]);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	// LOG
+	private void append(K key, byte[] keyBytes, byte[] valueBytes)
+	{
+		int recordLength = RECORD_HEADER_SIZE_BYTES+keyBytes.length+valueBytes.length;
+		if(activeSegment.writePosition+recordLength > activeSegment.sizeBytes)
+			activeSegment = createSegment(activeSegment.id+1);
+		
+		var location = activeSegment.append(keyBytes, valueBytes);
+		var previousLocation = index.put(key, location);
+		if(previousLocation != null)
+			previousLocation.segment.liveBytes -= previousLocation.recordLength;
+	}
+	
+	private void replay()
+	{
+		for(var file : FileUtil.listFilesFlat(directory, FileType.FILE))
+		{
+			var matcher = SEGMENT_FILE_NAME_PATTERN.matcher(file.getName());
+			if(!matcher.matches())
+			{
+				LOGGER.warn("Ignoring file {} in log directory, it is not a segment", file);
+				continue;
+			}
+			
+			int id = Integer.parseInt(matcher.group(1));
+			var segment = openSegment(id, file);
+			if(segment != null)
+				segments.put(id, segment);
+		}
+		
+		for(var segment : segments.values())
+			segment.replay();
+		
+		activeSegment = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+	}
+	
+	private Segment createSegment(int id)
+	{
+		var file = new File(directory, id+SEGMENT_FILE_EXTENSION);
+		var segment = new Segment(id, file, map(file, segmentSizeBytes));
+		segment.writeHeader();
+		segments.put(id, segment);
+		return segment;
+	}
+	
+	/**
+	 * @return the segment stored in the file, or null if the file was created but its header never reached the disk
+	 */
+	private Segment openSegment(int id, File file)
+	{
+		var header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE_BYTES);
+		long fileSizeBytes;
+		try(var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			while(header.hasRemaining())
+				if(channel.read(header) < 0)
+					break;
+			fileSizeBytes = channel.size();
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		
+		header.flip();
+		int magic = header.remaining() == SEGMENT_HEADER_SIZE_BYTES ? header.getInt() : 0;
+		if(magic == 0)
+		{
+			LOGGER.warn("Segment {} has no header, it was created right before a crash and is deleted", file);
+			FileUtil.deleteFile(file);
+			return null;
+		}
+		
+		int sizeBytes = header.getInt();
+		if(magic != SEGMENT_MAGIC || sizeBytes != fileSizeBytes)
+			throw new IllegalStateException("file "+file+" is not a valid log segment");
+		
+		return new Segment(id, file, map(file, sizeBytes));
+	}
+	
+	private static MappedByteBuffer map(File file, int sizeBytes)
+	{
+		try(var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			// the mapping stays valid after the channel is closed
+			return channel.map(MapMode.READ_WRITE, 0, sizeBytes);
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/**
+	 * Releases the mapping right away if possible, so that the memory and the file are freed. Otherwise the segment
+	 * stays mapped until the buffer is garbage collected. The buffer must not be accessed anymore afterwards.
+	 */
+	private static void unmap(MappedByteBuffer buffer)
+	{
+		BufferUtil.release(buffer);
+	}
+	
+	
+	// COMPACTION
+	private void runCompaction()
+	{
+		while(!closed)
+		{
+			ThreadUtil.sleep(COMPACTION_INTERVAL);
+			if(closed)
+				return;
+			
+			try
+			{
+				compact();
+			}
+			catch(RuntimeException e)
+			{
+				LOGGER.error("Failed to compact log in {}", directory, e);
+			}
+		}
+	}
+	
+	/**
+	 * Rewrites the live records of sealed segments which are mostly dead to the end of the log and deletes those
+	 * segments.
+	 */
+	@API
+	public void compact()
+	{
+		compactionLock.lock();
+		try
+		{
+			var liveRecordsBySegment = findCompactionCandidates();
+			for(var entry : liveRecordsBySegment.entrySet())
+				if(!closed)
+					compactSegment(entry.getKey(), entry.getValue());
+		}
+		finally
+		{
+			compactionLock.unlock();
+		}
+	}
+	
+	private Map<Segment, List<Map.Entry<K, RecordLocation>>> findCompactionCandidates()
+	{
+		var liveRecordsBySegment = new LinkedHashMap<Segment, List<Map.Entry<K, RecordLocation>>>();
+		lock.readLock().lock();
+		try
+		{
+			if(closed)
+				return liveRecordsBySegment;
+			
+			for(var segment : segments.values())
+				if(segment != activeSegment && segment.liveBytes < segment.getRecordBytes()*COMPACTION_LIVE_RATIO_THRESHOLD)
+					liveRecordsBySegment.put(segment, new ArrayList<>());
+			if(liveRecordsBySegment.isEmpty())
+				return liveRecordsBySegment;
+			
+			// one pass over the index for all candidates
+			for(var entry : index.entrySet())
+			{
+				var liveRecords = liveRecordsBySegment.get(entry.getValue().segment);
+				if(liveRecords != null)
+					liveRecords.add(Map.entry(entry.getKey(), entry.getValue()));
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		return liveRecordsBySegment;
+	}
+	
+	private void compactSegment(Segment segment, List<Map.Entry<K, RecordLocation>> liveRecords)
+	{
+		int firstCopySegmentId = getActiveSegmentId();
+		for(int batchStart = 0; batchStart < liveRecords.size(); batchStart += COMPACTION_BATCH_SIZE)
+		{
+			var batch = liveRecords.subList(batchStart, Math.min(batchStart+COMPACTION_BATCH_SIZE, liveRecords.size()));
+			
+			// the segment is sealed and only compaction deletes segments, so it can be read without the lock
+			var copies = new ArrayList<byte[][]>();
+			for(var record : batch)
+				copies.add(new byte[][] {segment.readKey(record.getValue()), segment.readValue(record.getValue())});
+			
+			lock.writeLock().lock();
+			try
+			{
+				if(closed)
+					return;
+				
+				for(int i = 0; i < batch.size(); i++)
+				{
+					var record = batch.get(i);
+					if(index.get(record.getKey()) == record.getValue()) // skip records superseded in the meantime
+						append(record.getKey(), copies.get(i)[0], copies.get(i)[1]);
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+		
+		// the copies might have rolled over into new segments, all of them have to be on disk before deleting the original
+		forceSegmentsFrom(firstCopySegmentId);
+		lock.writeLock().lock();
+		try
+		{
+			if(closed)
+				return;
+			segments.remove(segment.id);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		
+		unmap(segment.buffer);
+		FileUtil.deleteFile(segment.file);
+	}
+	
+	private int getActiveSegmentId()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return activeSegment.id;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	private void forceSegmentsFrom(int firstSegmentId)
+	{
+		List<Segment> segmentsToForce;
+		lock.readLock().lock();
+		try
+		{
+			segmentsToForce = new ArrayList<>(segments.tailMap(firstSegmentId, true).values());
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		for(var segment : segmentsToForce)
+			segment.buffer.force();
+	}
+	
+	
+	// CLOSE
+	/**
+	 * Stops background compaction, forces all segments to disk and unmaps them. Reads and stores after closing fail.
+	 */
+	@Override
+	public void close()
+	{
+		closed = true;
+		compactionThread.interrupt();
+		
+		// compaction reads segments without the lock, so it has to be finished before unmapping
+		compactionLock.lock();
+		try
+		{
+			lock.writeLock().lock();
+			try
+			{
+				for(var segment : segments.values())
+				{
+					segment.buffer.force();
+					unmap(segment.buffer);
+				}
+				segments.clear();
+				index.clear();
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+		finally
+		{
+			compactionLock.unlock();
+		}
+	}
+	
+	
+	// SEGMENT
+	private class Segment
+	{
+		
+		private final int id;
+		private final File file;
+		private final int sizeBytes;
+		private final MappedByteBuffer buffer;
+		private int writePosition = SEGMENT_HEADER_SIZE_BYTES;
+		private long liveBytes = 0;
+		
+		
+		// INIT
+		public Segment(int id, File file, MappedByteBuffer buffer)
+		{
+			this.id = id;
+			this.file = file;
+			this.buffer = buffer;
+			sizeBytes = buffer.capacity();
+		}
+		
+		
+		// HEADER
+		public void writeHeader()
+		{
+			buffer.putInt(0, SEGMENT_MAGIC);
+			buffer.putInt(Integer.BYTES, sizeBytes);
+			buffer.force();
+		}
+		
+		public long getRecordBytes()
+		{
+			return writePosition-SEGMENT_HEADER_SIZE_BYTES;
+		}
+		
+		
+		// RECORDS
+		public RecordLocation append(byte[] keyBytes, byte[] valueBytes)
+		{
+			int recordLength = RECORD_HEADER_SIZE_BYTES+keyBytes.length+valueBytes.length;
+			var location = new RecordLocation(this, writePosition, recordLength, keyBytes.length);
+			
+			buffer.position(writePosition);
+			buffer.putInt(recordLength);
+			buffer.putInt(checksum(keyBytes, valueBytes));
+			buffer.putInt(keyBytes.length);
+			buffer.put(keyBytes);
+			buffer.put(valueBytes);
+			
+			writePosition += recordLength;
+			liveBytes += recordLength;
+			return location;
+		}
+		
+		public byte[] readKey(RecordLocation location)
+		{
+			return read(location.offset+RECORD_HEADER_SIZE_BYTES, location.keyLength);
+		}
+		
+		public byte[] readValue(RecordLocation location)
+		{
+			int valueOffset = location.offset+RECORD_HEADER_SIZE_BYTES+location.keyLength;
+			return read(valueOffset, location.recordLength-RECORD_HEADER_SIZE_BYTES-location.keyLength);
+		}
+		
+		private byte[] read(int offset, int length)
+		{
+			byte[] bytes = new byte[length];
+			var view = buffer.duplicate();
+			view.position(offset);
+			view.get(bytes);
+			return bytes;
+		}
+		
+		public void replay()
+		{
+			int position = SEGMENT_HEADER_SIZE_BYTES;
+			while(position+RECORD_HEADER_SIZE_BYTES <= sizeBytes)
+			{
+				int recordLength = buffer.getInt(position);
+				int checksum = buffer.getInt(position+Integer.BYTES);
+				int keyLength = buffer.getInt(position+2*Integer.BYTES);
+				boolean plausible = recordLength >= RECORD_HEADER_SIZE_BYTES && recordLength <= sizeBytes-position
+					&& keyLength >= 0 && keyLength <= recordLength-RECORD_HEADER_SIZE_BYTES;
+				if(!plausible)
+					break;
+				
+				var location = new RecordLocation(this, position, recordLength, keyLength);
+				byte[] keyBytes = readKey(location);
+				byte[] valueBytes = readValue(location);
+				if(checksum(keyBytes, valueBytes) != checksum)
+				{
+					LOGGER.warn("Found corrupt record in segment {}, discarding rest of segment", file);
+					break;
+				}
+				
+				var key = keySerdes.deserialize(new String(keyBytes, StandardCharsets.UTF_8));
+				var previousLocation = index.put(key, location);
+				if(previousLocation != null)
+					previousLocation.segment.liveBytes -= previousLocation.recordLength;
+				liveBytes += recordLength;
+				position += recordLength;
+			}
+			
+			writePosition = position;
+		}
+		
+		private int checksum(byte[] keyBytes, byte[] valueBytes)
+		{
+			var crc = new CRC32();
+			crc.update(keyBytes);
+			crc.update(valueBytes);
+			return (int) crc.getValue();
+		}
+		
+	}
+	
+	private class RecordLocation
+	{
+		
+		private final Segment segment;
+		private final int offset;
+		private final int recordLength;
+		private final int keyLength;
+		
+		
+		// INIT
+		public RecordLocation(Segment segment, int offset, int recordLength, int keyLength)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.recordLength = recordLength;
+			this.keyLength = keyLength;
+		}
+		
+	}
+	
+}
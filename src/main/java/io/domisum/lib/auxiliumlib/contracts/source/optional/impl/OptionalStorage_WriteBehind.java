@@ -0,0 +1,337 @@
+package io.domisum.lib.auxiliumlib.contracts.source.optional.impl;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalStorage;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers stores and writes them to the backing storage in batches, either once enough elements are pending or after
+ * the flush interval. Multiple stores of the same key before a flush only write the latest element.
+ * <p>
+ * Reads see pending elements immediately. The buffer holds at most the maximum number of pending elements, counting
+ * both elements waiting for a flush and elements currently being written. When it is full, stores of new keys block
+ * until a flush made room. If a batch fails to be written, its elements stay pending and are retried after a backoff
+ * starting at the flush interval, doubling with every consecutive failed flush up to a maximum.
+ * <p>
+ * Keys and elements can't be null. Storages which derive the key from the element are buffered by
+ * {@link OptionalKeyedValueStorage_WriteBehind}.
+ */
+@API
+public final class OptionalStorage_WriteBehind<K, V>
+	implements OptionalStorage<K, V>, AutoCloseable
+{
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(OptionalStorage_WriteBehind.class);
+	
+	
+	// CONSTANTS
+	private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+	
+	// DEPENDENCIES
+	private final OptionalStorage<K, V> backingStorage;
+	
+	// SETTINGS
+	private final int maxBatchSize;
+	private final Duration flushInterval;
+	private final int maxPendingElements;
+	
+	// STATE
+	private final Lock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+	private final Condition flushDue = lock.newCondition();
+	private Map<K, V> pending = new LinkedHashMap<>();
+	private Map<K, V> flushing = Collections.emptyMap();
+	private boolean closed = false;
+	private int consecutiveFailedFlushes = 0;
+	@Nullable
+	private volatile RuntimeException lastWriteFailure = null;
+	
+	private final Lock flushLock = new ReentrantLock();
+	private final Thread flusherThread;
+	
+	
+	// INIT
+	private OptionalStorage_WriteBehind(OptionalStorage<K, V> backingStorage, int maxBatchSize, Duration flushInterval, int maxPendingElements)
+	{
+		this.backingStorage = backingStorage;
+		this.maxBatchSize = maxBatchSize;
+		this.flushInterval = flushInterval;
+		this.maxPendingElements = maxPendingElements;
+		
+		flusherThread = ThreadUtil.createAndStartDaemonThread(this::runFlusher, "writeBehind-flusher");
+	}
+	
+	/**
+	 * @param maxBatchSize       the number of pending elements which triggers a flush, and the maximum number of
+	 *                           elements written in one call to the backing storage
+	 * @param flushInterval      the maximum time elements stay pending
+	 * @param maxPendingElements the number of buffered elements, waiting or being written, at which stores block
+	 */
+	@API
+	public static <K, V> OptionalStorage_WriteBehind<K, V> of(
+		OptionalStorage<K, V> backingStorage, int maxBatchSize, Duration flushInterval, int maxPendingElements)
+	{
+		ValidationUtil.notNull(backingStorage, "backingStorage");
+		ValidationUtil.notNull(flushInterval, "flushInterval");
+		if(maxBatchSize < 1)
+			throw new IllegalArgumentException("maxBatchSize has to be at least 1, but was "+maxBatchSize);
+		if(maxPendingElements < maxBatchSize)
+			throw new IllegalArgumentException("maxPendingElements has to be at least maxBatchSize, but was "+maxPendingElements);
+		
+		return new OptionalStorage_WriteBehind<>(backingStorage, maxBatchSize, flushInterval, maxPendingElements);
+	}
+	
+	
+	// STORAGE
+	@Override
+	public Optional<V> get(K key)
+	{
+		lock.lock();
+		try
+		{
+			var pendingElement = pending.get(key);
+			if(pendingElement != null)
+				return Optional.of(pendingElement);
+			
+			var flushingElement = flushing.get(key);
+			if(flushingElement != null)
+				return Optional.of(flushingElement);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		
+		return backingStorage.get(key);
+	}
+	
+	@Override
+	public void store(K key, V element)
+	{
+		ValidationUtil.notNull(key, "key");
+		ValidationUtil.notNull(element, "element");
+		storeAll(Map.of(key, element));
+	}
+	
+	@Override
+	public void storeAll(Map<K, V> elements)
+	{
+		for(var entry : elements.entrySet())
+		{
+			ValidationUtil.notNull(entry.getKey(), "key");
+			ValidationUtil.notNull(entry.getValue(), "element");
+		}
+		
+		lock.lock();
+		try
+		{
+			for(var entry : elements.entrySet())
+			{
+				while(!closed && getBufferedCount() >= maxPendingElements && !pending.containsKey(entry.getKey()))
+				{
+					flushDue.signal();
+					notFull.awaitUninterruptibly();
+				}
+				
+				if(closed)
+					throw new IllegalStateException("can't store elements after storage was closed");
+				pending.put(entry.getKey(), entry.getValue());
+			}
+			
+			if(pending.size() >= maxBatchSize)
+				flushDue.signal();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	
+	// FLUSH
+	/**
+	 * Writes all elements which are pending when this method is called to the backing storage before returning.
+	 */
+	@API
+	public void flush()
+	{
+		flushLock.lock();
+		try
+		{
+			lock.lock();
+			try
+			{
+				if(pending.isEmpty())
+					return;
+				
+				flushing = pending;
+				pending = new LinkedHashMap<>();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			
+			writeFlushing();
+		}
+		finally
+		{
+			flushLock.unlock();
+		}
+	}
+	
+	private void writeFlushing()
+	{
+		// once a batch failed, the remaining batches are not tried, so a backend which is down isn't hammered
+		var batch = new LinkedHashMap<K, V>();
+		var failed = new LinkedHashMap<K, V>();
+		for(var entry : flushing.entrySet())
+		{
+			if(!failed.isEmpty())
+			{
+				failed.put(entry.getKey(), entry.getValue());
+				continue;
+			}
+			
+			batch.put(entry.getKey(), entry.getValue());
+			if(batch.size() >= maxBatchSize)
+				writeBatch(batch, failed);
+		}
+		if(!batch.isEmpty())
+			writeBatch(batch, failed);
+		
+		lock.lock();
+		try
+		{
+			// elements stored again during the flush are newer than the failed ones
+			for(var entry : failed.entrySet())
+				pending.putIfAbsent(entry.getKey(), entry.getValue());
+			flushing = Collections.emptyMap();
+			consecutiveFailedFlushes = failed.isEmpty() ? 0 : consecutiveFailedFlushes+1;
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private void writeBatch(Map<K, V> batch, Map<K, V> failed)
+	{
+		try
+		{
+			backingStorage.storeAll(new LinkedHashMap<>(batch));
+		}
+		catch(RuntimeException e)
+		{
+			LOGGER.warn("Failed to write batch of {} elements, retrying all unwritten elements after backoff", batch.size(), e);
+			lastWriteFailure = e;
+			failed.putAll(batch);
+		}
+		
+		batch.clear();
+	}
+	
+	private void runFlusher()
+	{
+		while(true)
+		{
+			lock.lock();
+			try
+			{
+				// after a failed flush, a full buffer doesn't cut the wait short, so a failing backend isn't hammered
+				boolean backingOff = consecutiveFailedFlushes > 0;
+				long remainingNanos = backingOff ? retryBackoffNanos() : flushInterval.toNanos();
+				while(!closed && (backingOff || pending.size() < maxBatchSize) && remainingNanos > 0)
+					remainingNanos = flushDue.awaitNanos(remainingNanos);
+				
+				if(closed)
+					return;
+			}
+			catch(InterruptedException ignored)
+			{
+				return;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			
+			flush();
+		}
+	}
+	
+	private long retryBackoffNanos()
+	{
+		int doublings = Math.min(consecutiveFailedFlushes-1, 30);
+		long maxBackoffNanos = Math.max(flushInterval.toNanos(), MAX_RETRY_BACKOFF.toNanos());
+		long backoffNanos = flushInterval.toNanos()<<doublings;
+		return backoffNanos < 0 ? maxBackoffNanos : Math.min(backoffNanos, maxBackoffNanos);
+	}
+	
+	
+	// CLOSE
+	/**
+	 * Stops the background flushing and writes all pending elements. Stores after closing fail.
+	 *
+	 * @throws IllegalStateException if some of the pending elements failed to be written, they stay readable from this
+	 *                               storage but are not written anymore
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			flushDue.signalAll();
+			notFull.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		
+		ThreadUtil.join(flusherThread);
+		flush();
+		
+		int unwrittenCount = getPendingCount();
+		if(unwrittenCount > 0)
+			throw new IllegalStateException("Closed with "+unwrittenCount+" elements which failed to be written", lastWriteFailure);
+	}
+	
+	
+	// GETTERS
+	@API
+	public int getPendingCount()
+	{
+		lock.lock();
+		try
+		{
+			return getBufferedCount();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private int getBufferedCount()
+	{
+		return pending.size()+flushing.size();
+	}
+	
+}
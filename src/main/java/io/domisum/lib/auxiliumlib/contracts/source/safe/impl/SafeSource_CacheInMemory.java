@@ -1,6 +1,8 @@
 package io.domisum.lib.auxiliumlib.contracts.source.safe.impl;
 
+import io.domisum.lib.auxiliumlib.annotations.API;
 import io.domisum.lib.auxiliumlib.contracts.source.safe.SafeSource;
+import io.domisum.lib.auxiliumlib.datastructures.CacheStats;
 import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
 import io.domisum.lib.auxiliumlib.datastructures.LazyCache;
 import lombok.RequiredArgsConstructor;
@@ -16,25 +18,43 @@ public abstract class SafeSource_CacheInMemory<K, V>
 	private final SafeSource<K, V> backingSource;
 	
 	// CACHE
-	private final LazyCache<K, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+	private final LazyCache<K, V> cache = createCache();
 	
 	
 	// CONSTANT METHODS
 	@Nullable
 	protected abstract ExpirationSettings EXPIRATION_SETTINGS();
 	
+	protected boolean RECORD_STATS()
+	{
+		return false;
+	}
+	
+	
+	// INIT
+	private LazyCache<K, V> createCache()
+	{
+		LazyCache<K, V> cache = LazyCache.of(EXPIRATION_SETTINGS());
+		if(RECORD_STATS())
+			cache.enableStats();
+		
+		return cache;
+	}
+	
 	
 	// SOURCE
 	@Override
 	public V get(K key)
 	{
-		var itemFromCacheOptional = cache.get(key);
-		if(itemFromCacheOptional.isPresent())
-			return itemFromCacheOptional.get();
-		
-		var itemFromBackingSource = backingSource.get(key);
-		cache.put(key, itemFromBackingSource);
-		return itemFromBackingSource;
+		return cache.get(key, backingSource::get);
+	}
+	
+	
+	// STATS
+	@API
+	public CacheStats getCacheStats()
+	{
+		return cache.getStats();
 	}
 	
 }
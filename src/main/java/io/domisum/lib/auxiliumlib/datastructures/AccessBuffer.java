@@ -0,0 +1,113 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lossy, striped buffer recording which keys were read, so reads don't have to take the eviction lock.
+ * <p>
+ * Offering never blocks and never retries: if the stripe is full or another thread wins the slot, the access is
+ * dropped. Losing some accesses only makes the eviction policy slightly less accurate. Draining is done by a single
+ * thread holding the eviction lock.
+ */
+final class AccessBuffer<KeyT>
+{
+	
+	// CONSTANTS
+	private static final int STRIPE_SIZE = 128;
+	private static final int STRIPE_MASK = STRIPE_SIZE-1;
+	private static final int DRAIN_THRESHOLD = STRIPE_SIZE/4;
+	
+	// STATE
+	private final Stripe<KeyT>[] stripes;
+	private final int stripeMask;
+	
+	
+	// INIT
+	AccessBuffer()
+	{
+		int numberOfStripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors()*2-1)<<1;
+		@SuppressWarnings("unchecked")
+		Stripe<KeyT>[] stripes = (Stripe<KeyT>[]) new Stripe<?>[numberOfStripes];
+		for(int i = 0; i < numberOfStripes; i++)
+			stripes[i] = new Stripe<>();
+		this.stripes = stripes;
+		stripeMask = numberOfStripes-1;
+	}
+	
+	
+	// BUFFER
+	/**
+	 * @return whether the buffer should be drained
+	 */
+	boolean offer(KeyT key)
+	{
+		var stripe = stripes[stripeIndex()];
+		return stripe.offer(key);
+	}
+	
+	void drain(Consumer<KeyT> consumer)
+	{
+		for(var stripe : stripes)
+			stripe.drain(consumer);
+	}
+	
+	private int stripeIndex()
+	{
+		long threadId = Thread.currentThread().getId();
+		int hash = (int) (threadId^(threadId>>>32))*0x9E3779B9;
+		return (hash>>>16)&stripeMask;
+	}
+	
+	
+	// STRIPE
+	private static final class Stripe<KeyT>
+	{
+		
+		// STATE
+		private final AtomicReferenceArray<KeyT> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+		private final AtomicLong writeCounter = new AtomicLong();
+		private volatile long readCounter = 0;
+		
+		
+		// BUFFER
+		private boolean offer(KeyT key)
+		{
+			long head = readCounter;
+			long tail = writeCounter.get();
+			long size = tail-head;
+			if(size >= STRIPE_SIZE)
+				return true;
+			
+			if(writeCounter.compareAndSet(tail, tail+1))
+			{
+				slots.lazySet((int) (tail&STRIPE_MASK), key);
+				size++;
+			}
+			
+			return size >= DRAIN_THRESHOLD;
+		}
+		
+		private void drain(Consumer<KeyT> consumer)
+		{
+			long head = readCounter;
+			long tail = writeCounter.get();
+			
+			for(; head < tail; head++)
+			{
+				int index = (int) (head&STRIPE_MASK);
+				var key = slots.get(index);
+				if(key == null) // slot claimed, but key not written yet
+					break;
+				
+				slots.lazySet(index, null);
+				consumer.accept(key);
+			}
+			
+			readCounter = head;
+		}
+		
+	}
+	
+}
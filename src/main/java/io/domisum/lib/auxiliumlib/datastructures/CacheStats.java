@@ -0,0 +1,80 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Map;
+
+@API
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+@ToString
+public final class CacheStats
+{
+	
+	// COUNTS
+	@Getter
+	private final long hitCount;
+	@Getter
+	private final long missCount;
+	@Getter
+	private final long loadSuccessCount;
+	@Getter
+	private final long loadFailureCount;
+	private final long totalLoadTimeNanos;
+	private final Map<RemovalCause, Long> removalCounts;
+	
+	// STATE
+	@Getter
+	private final long size;
+	
+	
+	// GETTERS
+	@API
+	public long getRequestCount()
+	{
+		return hitCount+missCount;
+	}
+	
+	@API
+	public double getHitRate()
+	{
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 1 : hitCount/(double) requestCount;
+	}
+	
+	@API
+	public long getLoadCount()
+	{
+		return loadSuccessCount+loadFailureCount;
+	}
+	
+	@API
+	public Duration getTotalLoadTime()
+	{
+		return Duration.ofNanos(totalLoadTimeNanos);
+	}
+	
+	@API
+	public Duration getAverageLoadTime()
+	{
+		long loadCount = getLoadCount();
+		return loadCount == 0 ? Duration.ZERO : Duration.ofNanos(totalLoadTimeNanos/loadCount);
+	}
+	
+	@API
+	public long getRemovalCount(RemovalCause cause)
+	{
+		return removalCounts.getOrDefault(cause, 0L);
+	}
+	
+	@API
+	public long getEvictionCount()
+	{
+		return getRemovalCount(RemovalCause.EXPIRED)+getRemovalCount(RemovalCause.SIZE);
+	}
+	
+}
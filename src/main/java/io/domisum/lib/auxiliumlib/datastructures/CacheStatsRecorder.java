@@ -0,0 +1,75 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import java.util.EnumMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records cache statistics using striped counters, so that concurrent recording doesn't contend on a single variable.
+ */
+final class CacheStatsRecorder
+{
+	
+	// COUNTERS
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder loadSuccessCount = new LongAdder();
+	private final LongAdder loadFailureCount = new LongAdder();
+	private final LongAdder totalLoadTimeNanos = new LongAdder();
+	private final LongAdder[] removalCounts = new LongAdder[RemovalCause.values().length];
+	
+	
+	// INIT
+	CacheStatsRecorder()
+	{
+		for(int i = 0; i < removalCounts.length; i++)
+			removalCounts[i] = new LongAdder();
+	}
+	
+	
+	// RECORD
+	void recordHit()
+	{
+		hitCount.increment();
+	}
+	
+	void recordMiss()
+	{
+		missCount.increment();
+	}
+	
+	void recordLoadSuccess(long loadTimeNanos)
+	{
+		loadSuccessCount.increment();
+		totalLoadTimeNanos.add(loadTimeNanos);
+	}
+	
+	void recordLoadFailure(long loadTimeNanos)
+	{
+		loadFailureCount.increment();
+		totalLoadTimeNanos.add(loadTimeNanos);
+	}
+	
+	void recordRemoval(RemovalCause cause, long count)
+	{
+		removalCounts[cause.ordinal()].add(count);
+	}
+	
+	
+	// SNAPSHOT
+	CacheStats snapshot(long size)
+	{
+		var removalCountsSnapshot = new EnumMap<RemovalCause, Long>(RemovalCause.class);
+		for(var cause : RemovalCause.values())
+			removalCountsSnapshot.put(cause, removalCounts[cause.ordinal()].sum());
+		
+		return new CacheStats(
+			hitCount.sum(),
+			missCount.sum(),
+			loadSuccessCount.sum(),
+			loadFailureCount.sum(),
+			totalLoadTimeNanos.sum(),
+			removalCountsSnapshot,
+			size);
+	}
+	
+}
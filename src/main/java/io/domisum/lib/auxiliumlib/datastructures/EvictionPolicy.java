@@ -0,0 +1,50 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+@API
+public enum EvictionPolicy
+{
+	
+	/**
+	 * Evicts the entry which was used least recently.
+	 */
+	LRU
+		{
+			@Override
+			<KeyT> EvictionTracker<KeyT> createTracker(long maximumWeight)
+			{
+				return new LruEvictionTracker<>(maximumWeight);
+			}
+		},
+	
+	/**
+	 * Evicts the entry which was used least frequently, ties are broken by evicting the least recently used entry.
+	 */
+	LFU
+		{
+			@Override
+			<KeyT> EvictionTracker<KeyT> createTracker(long maximumWeight)
+			{
+				return new LfuEvictionTracker<>(maximumWeight);
+			}
+		},
+	
+	/**
+	 * New entries enter a small LRU window. When they leave the window, they are only admitted into the main
+	 * segmented LRU space if their estimated frequency is higher than the one of the entry they would replace.
+	 */
+	W_TINY_LFU
+		{
+			@Override
+			<KeyT> EvictionTracker<KeyT> createTracker(long maximumWeight)
+			{
+				return new WindowTinyLfuEvictionTracker<>(maximumWeight);
+			}
+		};
+	
+	
+	// TRACKER
+	abstract <KeyT> EvictionTracker<KeyT> createTracker(long maximumWeight);
+	
+}
@@ -0,0 +1,82 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+
+@API
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class EvictionSettings
+{
+	
+	// CONSTANTS
+	private static final EvictionPolicy DEFAULT_POLICY = EvictionPolicy.LRU;
+	
+	// SETTINGS
+	@Getter
+	private final long maximum;
+	@Nullable
+	private final Weigher<?, ?> weigher;
+	@Getter
+	private final EvictionPolicy policy;
+	
+	
+	// INIT
+	@API
+	public static EvictionSettings maximumSize(long maximumSize)
+	{
+		return maximumSize(maximumSize, DEFAULT_POLICY);
+	}
+	
+	@API
+	public static EvictionSettings maximumSize(long maximumSize, EvictionPolicy policy)
+	{
+		return create(maximumSize, null, policy);
+	}
+	
+	@API
+	public static <KeyT, T> EvictionSettings maximumWeight(long maximumWeight, Weigher<KeyT, T> weigher)
+	{
+		return maximumWeight(maximumWeight, weigher, DEFAULT_POLICY);
+	}
+	
+	@API
+	public static <KeyT, T> EvictionSettings maximumWeight(long maximumWeight, Weigher<KeyT, T> weigher, EvictionPolicy policy)
+	{
+		ValidationUtil.notNull(weigher, "weigher");
+		return create(maximumWeight, weigher, policy);
+	}
+	
+	private static EvictionSettings create(long maximum, @Nullable Weigher<?, ?> weigher, EvictionPolicy policy)
+	{
+		if(maximum <= 0)
+			throw new IllegalArgumentException("maximum has to be greater than zero, but was "+maximum);
+		ValidationUtil.notNull(policy, "policy");
+		
+		return new EvictionSettings(maximum, weigher, policy);
+	}
+	
+	
+	// GETTERS
+	public boolean isWeighted()
+	{
+		return weigher != null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	<KeyT, T> long weigh(KeyT key, T value)
+	{
+		if(weigher == null)
+			return 1;
+		
+		int weight = ((Weigher<KeyT, T>) weigher).weigh(key, value);
+		if(weight < 0)
+			throw new IllegalArgumentException("weigher returned negative weight "+weight+" for key "+key);
+		return weight;
+	}
+	
+}
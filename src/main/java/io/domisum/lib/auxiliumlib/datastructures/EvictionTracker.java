@@ -0,0 +1,235 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the keys of a size bounded cache and decides which key to evict next.
+ * <p>
+ * Not thread safe, callers have to synchronize access. All operations run in constant time.
+ */
+abstract class EvictionTracker<KeyT>
+{
+	
+	// SETTINGS
+	protected final long maximumWeight;
+	
+	// STATE
+	private final Map<KeyT, Node<KeyT>> nodes = new HashMap<>();
+	private long totalWeight = 0;
+	
+	
+	// INIT
+	protected EvictionTracker(long maximumWeight)
+	{
+		this.maximumWeight = maximumWeight;
+	}
+	
+	
+	// TRACKING
+	void add(KeyT key, long weight)
+	{
+		var existingNode = nodes.get(key);
+		if(existingNode != null)
+		{
+			updateWeight(existingNode, weight);
+			recordAccess(existingNode);
+			return;
+		}
+		
+		var node = new Node<>(key, weight);
+		nodes.put(key, node);
+		totalWeight += weight;
+		onAdd(node);
+	}
+	
+	void recordAccess(KeyT key)
+	{
+		var node = nodes.get(key);
+		if(node != null)
+			recordAccess(node);
+	}
+	
+	void remove(KeyT key)
+	{
+		var node = nodes.remove(key);
+		if(node == null)
+			return;
+		
+		totalWeight -= node.weight;
+		onRemove(node);
+	}
+	
+	void clear()
+	{
+		nodes.clear();
+		totalWeight = 0;
+		onClear();
+	}
+	
+	/**
+	 * Selects the next key to evict and stops tracking it.
+	 *
+	 * @return the evicted key, or null if the total weight is within the maximum
+	 */
+	@Nullable
+	KeyT pollVictim()
+	{
+		if(totalWeight <= maximumWeight || nodes.isEmpty())
+			return null;
+		
+		var victim = selectVictim();
+		remove(victim.key);
+		return victim.key;
+	}
+	
+	
+	// GETTERS
+	long getTotalWeight()
+	{
+		return totalWeight;
+	}
+	
+	int size()
+	{
+		return nodes.size();
+	}
+	
+	
+	// INTERNAL
+	private void updateWeight(Node<KeyT> node, long weight)
+	{
+		long weightDelta = weight-node.weight;
+		node.weight = weight;
+		totalWeight += weightDelta;
+		if(node.deque != null)
+			node.deque.weight += weightDelta;
+	}
+	
+	private void recordAccess(Node<KeyT> node)
+	{
+		onAccess(node);
+	}
+	
+	
+	// POLICY
+	protected abstract void onAdd(Node<KeyT> node);
+	
+	protected abstract void onAccess(Node<KeyT> node);
+	
+	protected abstract void onRemove(Node<KeyT> node);
+	
+	protected abstract void onClear();
+	
+	protected abstract Node<KeyT> selectVictim();
+	
+	
+	// NODE
+	static final class Node<KeyT>
+	{
+		
+		// ATTRIBUTES
+		final KeyT key;
+		long weight;
+		
+		// LINKS
+		@Nullable
+		NodeDeque<KeyT> deque;
+		@Nullable
+		Node<KeyT> previous;
+		@Nullable
+		Node<KeyT> next;
+		
+		
+		// INIT
+		Node(KeyT key, long weight)
+		{
+			this.key = key;
+			this.weight = weight;
+		}
+		
+	}
+	
+	static class NodeDeque<KeyT>
+	{
+		
+		// STATE
+		@Nullable
+		private Node<KeyT> first;
+		@Nullable
+		private Node<KeyT> last;
+		long weight = 0;
+		
+		
+		// DEQUE
+		void addLast(Node<KeyT> node)
+		{
+			node.deque = this;
+			node.previous = last;
+			node.next = null;
+			if(last == null)
+				first = node;
+			else
+				last.next = node;
+			last = node;
+			
+			weight += node.weight;
+		}
+		
+		void remove(Node<KeyT> node)
+		{
+			if(node.previous == null)
+				first = node.next;
+			else
+				node.previous.next = node.next;
+			
+			if(node.next == null)
+				last = node.previous;
+			else
+				node.next.previous = node.previous;
+			
+			node.deque = null;
+			node.previous = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+		
+		void moveToLast(Node<KeyT> node)
+		{
+			if(node == last)
+				return;
+			
+			remove(node);
+			addLast(node);
+		}
+		
+		void clear()
+		{
+			first = null;
+			last = null;
+			weight = 0;
+		}
+		
+		
+		// GETTERS
+		@Nullable
+		Node<KeyT> peekFirst()
+		{
+			return first;
+		}
+		
+		@Nullable
+		Node<KeyT> peekLast()
+		{
+			return last;
+		}
+		
+		boolean isEmpty()
+		{
+			return first == null;
+		}
+		
+	}
+	
+}
@@ -1,13 +1,17 @@
 package io.domisum.lib.auxiliumlib.datastructures;
 
 import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import javax.annotation.Nullable;
 import java.time.Duration;
+import java.util.Optional;
 
 @API
-@RequiredArgsConstructor
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class ExpirationSettings
 {
 	
@@ -15,9 +19,17 @@ public class ExpirationSettings
 	private final Duration expirationDuration;
 	private final boolean randomizeExpirationDuration;
 	private final boolean onlyExpireUnused;
+	@Nullable
+	private final Double refreshAfterLifetimeFraction;
 	
 	
 	// INIT
+	@API
+	public ExpirationSettings(Duration expirationDuration, boolean randomizeExpirationDuration, boolean onlyExpireUnused)
+	{
+		this(expirationDuration, randomizeExpirationDuration, onlyExpireUnused, null);
+	}
+	
 	@API
 	public static ExpirationSettings after(Duration expirationDuration)
 	{
@@ -42,6 +54,22 @@ public class ExpirationSettings
 		return new ExpirationSettings(expirationDuration, true, true);
 	}
 	
+	/**
+	 * Returns a copy of these settings which refreshes entries ahead of their expiration.
+	 * <p>
+	 * When an entry which is older than the given fraction of its lifetime is read through a loading get, the old
+	 * value is returned and the entry is reloaded in the background.
+	 *
+	 * @param lifetimeFraction the fraction of the lifetime after which to refresh, between 0 (exclusive) and 1 (exclusive)
+	 * @return settings with refresh ahead
+	 */
+	@API
+	public ExpirationSettings withRefreshAhead(double lifetimeFraction)
+	{
+		ValidationUtil.inIntervalExclExcl(0, 1, lifetimeFraction, "lifetimeFraction");
+		return new ExpirationSettings(expirationDuration, randomizeExpirationDuration, onlyExpireUnused, lifetimeFraction);
+	}
+	
 	
 	// GETTERS
 	public boolean shouldRandomizeExpirationDuration()
@@ -54,4 +82,9 @@ public class ExpirationSettings
 		return onlyExpireUnused;
 	}
 	
+	public Optional<Double> getRefreshAfterLifetimeFraction()
+	{
+		return Optional.ofNullable(refreshAfterLifetimeFraction);
+	}
+	
 }
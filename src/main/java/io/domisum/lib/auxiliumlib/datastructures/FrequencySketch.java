@@ -0,0 +1,130 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch estimating how often keys were used recently.
+ * <p>
+ * Counters saturate at 15. After a number of increments proportional to the width of the sketch, all counters are
+ * halved so that the sketch forgets old usage patterns.
+ * <p>
+ * The sketch starts small and grows with the number of keys actually tracked (see {@link #ensureCapacity(long)}), so
+ * that a cache bounded by a large weight does not allocate counters for keys it will never hold.
+ */
+final class FrequencySketch
+{
+	
+	// CONSTANTS
+	private static final int DEPTH = 4;
+	private static final int MAXIMUM_COUNT = 15;
+	private static final int MAXIMUM_WIDTH = 1<<24;
+	private static final int SAMPLE_SIZE_FACTOR = 10;
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+	
+	// STATE
+	private int indexMask;
+	private int sampleSize;
+	private byte[][] counters;
+	private int additions = 0;
+	
+	
+	// INIT
+	FrequencySketch(long expectedNumberOfKeys)
+	{
+		allocate(widthFor(expectedNumberOfKeys));
+	}
+	
+	
+	// SKETCH
+	/**
+	 * Grows the sketch if it is too narrow for the given number of keys. Growing discards the counted frequencies,
+	 * since they can not be redistributed to the new counters. As the width doubles on every growth, the cost is
+	 * amortized over the keys added in between.
+	 */
+	void ensureCapacity(long expectedNumberOfKeys)
+	{
+		int width = widthFor(expectedNumberOfKeys);
+		if(width > counters[0].length)
+			allocate(width);
+	}
+	
+	void increment(Object key)
+	{
+		int hash = spread(key.hashCode());
+		int frequency = frequency(hash);
+		if(frequency >= MAXIMUM_COUNT)
+			return;
+		
+		// conservative update: only increment the counters which are at the minimum
+		for(int row = 0; row < DEPTH; row++)
+		{
+			int index = indexOf(hash, row);
+			if(counters[row][index] == frequency)
+				counters[row][index]++;
+		}
+		
+		additions++;
+		if(additions >= sampleSize)
+			age();
+	}
+	
+	int frequency(Object key)
+	{
+		return frequency(spread(key.hashCode()));
+	}
+	
+	void clear()
+	{
+		for(var row : counters)
+			Arrays.fill(row, (byte) 0);
+		additions = 0;
+	}
+	
+	
+	// INTERNAL
+	private void allocate(int width)
+	{
+		indexMask = width-1;
+		sampleSize = SAMPLE_SIZE_FACTOR*width;
+		counters = new byte[DEPTH][width];
+		additions = 0;
+	}
+	
+	private static int widthFor(long expectedNumberOfKeys)
+	{
+		return (int) Math.min(MAXIMUM_WIDTH, Math.max(16, Long.highestOneBit(expectedNumberOfKeys-1)<<1));
+	}
+	
+	private int frequency(int hash)
+	{
+		int frequency = MAXIMUM_COUNT;
+		for(int row = 0; row < DEPTH; row++)
+			frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+		
+		return frequency;
+	}
+	
+	private void age()
+	{
+		for(var row : counters)
+			for(int i = 0; i < row.length; i++)
+				row[i] = (byte) (row[i]>>>1);
+		
+		additions /= 2;
+	}
+	
+	private int indexOf(int hash, int row)
+	{
+		long mixed = (hash+SEEDS[row])*SEEDS[row];
+		mixed += mixed>>>32;
+		return ((int) mixed)&indexMask;
+	}
+	
+	private static int spread(int hash)
+	{
+		int spread = ((hash>>>16)^hash)*0x45d9f3b;
+		spread = ((spread>>>16)^spread)*0x45d9f3b;
+		return (spread>>>16)^spread;
+	}
+	
+}
@@ -0,0 +1,144 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import com.google.common.base.Ticker;
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * Variant of {@link LongLazyCache} with int keys, which are widened to long keys. Storage and expiration are the same as
+ * in {@link LongLazyCache}.
+ */
+@API
+public final class IntLazyCache<T>
+{
+	
+	// STATE
+	private final LongLazyCache<T> cache;
+	
+	
+	// INIT
+	private IntLazyCache(LongLazyCache<T> cache)
+	{
+		this.cache = cache;
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> of(@Nullable ExpirationSettings expirationSettings)
+	{
+		return new IntLazyCache<>(LongLazyCache.of(expirationSettings));
+	}
+	
+	/**
+	 * Creates a cache which reads time from the given ticker instead of {@link System#nanoTime()}, for example to
+	 * control time in tests.
+	 */
+	@API
+	public static <T> IntLazyCache<T> of(@Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		return new IntLazyCache<>(LongLazyCache.of(expirationSettings, ticker));
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> neverExpire()
+	{
+		return of(null);
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> expireAfter(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.after(expirationDuration));
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> expireAfterRandomized(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.afterRandomized(expirationDuration));
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> expireUnusedAfter(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.unusedAfter(expirationDuration));
+	}
+	
+	@API
+	public static <T> IntLazyCache<T> expireUnusedAfterRandomized(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.unusedAfterRandomized(expirationDuration));
+	}
+	
+	
+	// CACHE
+	@API
+	public void put(int key, T value)
+	{
+		cache.put(key, value);
+	}
+	
+	@API
+	public void remove(int key)
+	{
+		cache.remove(key);
+	}
+	
+	@API
+	public void clear()
+	{
+		cache.clear();
+	}
+	
+	
+	@API
+	public Optional<T> get(int key)
+	{
+		return Optional.ofNullable(getIfPresent(key));
+	}
+	
+	/**
+	 * Same as {@link #get(int)}, but returns null instead of an Optional so that a lookup doesn't allocate.
+	 */
+	@API
+	@Nullable
+	public T getIfPresent(int key)
+	{
+		return cache.getIfPresent(key);
+	}
+	
+	/**
+	 * Returns the cached value for the key or loads it using the loader if it isn't present. Concurrent calls for the
+	 * same key may each run the loader.
+	 */
+	@API
+	public T get(int key, IntFunction<T> loader)
+	{
+		var cachedValue = cache.getIfPresent(key);
+		if(cachedValue != null)
+			return cachedValue;
+		
+		var value = loader.apply(key);
+		cache.put(key, value);
+		return value;
+	}
+	
+	/**
+	 * Checks whether an unexpired value is cached for the key. Unlike reading the value, this doesn't count as use of
+	 * the entry.
+	 */
+	@API
+	public boolean containsKey(int key)
+	{
+		return cache.containsKey(key);
+	}
+	
+	@API
+	public int size()
+	{
+		return cache.size();
+	}
+	
+}
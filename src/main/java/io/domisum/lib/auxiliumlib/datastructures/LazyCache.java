@@ -1,38 +1,123 @@
 package io.domisum.lib.auxiliumlib.datastructures;
 
+import com.google.common.base.Ticker;
 import io.domisum.lib.auxiliumlib.annotations.API;
-import io.domisum.lib.auxiliumlib.util.TimeUtil;
+import io.domisum.lib.auxiliumlib.contracts.IoFunction;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
 import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
-import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @API
-@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public final class LazyCache<KeyT, T>
 {
 	
+	private static final Logger LOGGER = LoggerFactory.getLogger(LazyCache.class);
+	
+	
+	// CONSTANTS
+	private static final int SWEEP_BATCH_SIZE = 64;
+	private static final int SWEEP_PASSES_PER_EXPIRATION_DURATION = 4;
+	
 	// SETTINGS
 	@Nullable
 	private final ExpirationSettings expirationSettings;
+	@Nullable
+	private final EvictionSettings evictionSettings;
+	private final Ticker ticker;
 	
 	// STATE
 	private final transient Map<KeyT, CacheEntry> entries = new ConcurrentHashMap<>();
-	private transient Instant lastExpirationCheck = Instant.now();
+	private final transient Map<KeyT, Load> runningLoads = new ConcurrentHashMap<>();
+	
+	// EXPIRATION STATE
+	private final transient AtomicBoolean sweeping = new AtomicBoolean(false);
+	private volatile transient long nextSweepPassNanos;
+	@Nullable
+	private transient Iterator<Entry<KeyT, CacheEntry>> sweepCursor;
+	
+	// STATS STATE
+	@Nullable
+	private volatile transient CacheStatsRecorder statsRecorder;
+	
+	// REMOVAL LISTENER STATE
+	@Nullable
+	private volatile transient RemovalListener<KeyT, T> removalListener;
+	private volatile transient Executor removalListenerExecutor;
+	
+	// REFRESH STATE
+	@Nullable
+	private volatile transient Executor refreshExecutor;
+	
+	// EVICTION STATE
+	@Nullable
+	private final transient EvictionTracker<KeyT> evictionTracker;
+	private final transient Lock evictionLock = new ReentrantLock();
+	private final transient AccessBuffer<KeyT> accessBuffer = new AccessBuffer<>();
+	private final transient Queue<KeyT> pendingTrackerRemovals = new ConcurrentLinkedQueue<>();
 	
 	
 	// INIT
+	private LazyCache(@Nullable ExpirationSettings expirationSettings, @Nullable EvictionSettings evictionSettings, Ticker ticker)
+	{
+		this.expirationSettings = expirationSettings;
+		this.evictionSettings = evictionSettings;
+		this.ticker = ticker;
+		
+		nextSweepPassNanos = ticker.read();
+		evictionTracker = evictionSettings == null ? null : evictionSettings.getPolicy().createTracker(evictionSettings.getMaximum());
+	}
+	
 	@API
 	public static <KeyT, T> LazyCache<KeyT, T> of(@Nullable ExpirationSettings expirationSettings)
 	{
-		return new LazyCache<>(expirationSettings);
+		return of(expirationSettings, null);
+	}
+	
+	@API
+	public static <KeyT, T> LazyCache<KeyT, T> of(@Nullable ExpirationSettings expirationSettings, @Nullable EvictionSettings evictionSettings)
+	{
+		return of(expirationSettings, evictionSettings, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a cache which reads time from the given ticker instead of {@link System#nanoTime()}, for example to
+	 * control time in tests.
+	 */
+	@API
+	public static <KeyT, T> LazyCache<KeyT, T> of(
+		@Nullable ExpirationSettings expirationSettings, @Nullable EvictionSettings evictionSettings, Ticker ticker)
+	{
+		ValidationUtil.notNull(ticker, "ticker");
+		return new LazyCache<>(expirationSettings, evictionSettings, ticker);
 	}
 	
 	@API
@@ -65,99 +150,738 @@ public final class LazyCache<KeyT, T>
 		return of(ExpirationSettings.unusedAfterRandomized(expirationDuration));
 	}
 	
+	@API
+	public static <KeyT, T> LazyCache<KeyT, T> bounded(EvictionSettings evictionSettings)
+	{
+		return of(null, evictionSettings);
+	}
+	
 	
 	// CACHE
 	@API
 	public void put(KeyT key, T value)
 	{
-		ifDueExpire();
-		entries.put(key, new CacheEntry(value));
+		ifDueExpire(ticker.read());
+		
+		var entry = new CacheEntry(value);
+		if(evictionTracker == null)
+		{
+			var replacedEntry = entries.put(key, entry);
+			if(replacedEntry != null)
+				onRemoved(key, replacedEntry, RemovalCause.REPLACED);
+			return;
+		}
+		
+		long weight = evictionSettings.weigh(key, value);
+		evictionLock.lock();
+		try
+		{
+			drainBuffers();
+			var replacedEntry = entries.put(key, entry);
+			if(replacedEntry != null)
+				onRemoved(key, replacedEntry, RemovalCause.REPLACED);
+			
+			evictionTracker.add(key, weight);
+			evictIfOverMaximum();
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
 	}
 	
 	@API
 	public void remove(KeyT key)
 	{
-		ifDueExpire();
+		ifDueExpire(ticker.read());
 		if(key != null)
-			entries.remove(key);
+			removeExplicitly(key);
 	}
 	
 	@API
 	public void clear()
 	{
-		entries.clear();
+		if(evictionTracker == null)
+		{
+			removeAllFromMap();
+			return;
+		}
+		
+		evictionLock.lock();
+		try
+		{
+			drainBuffers();
+			removeAllFromMap();
+			evictionTracker.clear();
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
 	}
 	
 	
 	@API
 	public Optional<T> get(KeyT key)
 	{
-		ifDueExpire();
+		return Optional.ofNullable(getIfPresent(key));
+	}
+	
+	/**
+	 * Same as {@link #get(Object)}, but returns null instead of an Optional so that a cache hit doesn't allocate.
+	 */
+	@API
+	@Nullable
+	public T getIfPresent(KeyT key)
+	{
+		var entry = getEntry(key, ticker.read());
+		recordHitOrMiss(entry);
+		if(entry == null)
+			return null;
 		
-		var entry = entries.get(key);
+		return entry.getValue();
+	}
+	
+	/**
+	 * Same as {@link #getIfPresent(Object)}, but isn't counted as a hit or miss in the stats. Useful for checking again
+	 * after a lookup was already counted.
+	 */
+	@API
+	@Nullable
+	public T getIfPresentWithoutStats(KeyT key)
+	{
+		var entry = getEntry(key, ticker.read());
 		if(entry == null)
-			return Optional.empty();
-		if(entry.isExpired()) // don't remove expired entry because of race conditions, will be removed on next expire anyway
-			return Optional.empty();
+			return null;
 		
-		entry.markAsUsed();
-		return Optional.of(entry.getValue());
+		return entry.getValue();
 	}
 	
 	@API
 	public boolean containsKey(KeyT key)
 	{
-		ifDueExpire();
+		ifDueExpire(ticker.read());
 		
 		var entry = entries.get(key);
 		return entry != null;
 	}
 	
 	
-	// EXPIRATION
-	private void ifDueExpire()
+	// LOADING
+	/**
+	 * Returns the cached value for the key or loads it using the loader if it isn't present.
+	 * <p>
+	 * Concurrent calls for the same key only load once: one thread runs the loader, all other threads wait for and
+	 * share its result or exception. Loads for different keys run in parallel.
+	 */
+	@API
+	public T get(KeyT key, Function<KeyT, T> loader)
 	{
-		if(isExpireDue())
-			expire();
+		try
+		{
+			return getIo(key, loader::apply);
+		}
+		catch(IOException e) // only possible if a concurrent getIo call for the same key failed
+		{
+			throw new UncheckedIOException(e);
+		}
 	}
 	
-	private synchronized boolean isExpireDue()
+	/**
+	 * Same as {@link #get(Object, Function)}, but with a loader that can throw an IOException.
+	 */
+	@API
+	public T getIo(KeyT key, IoFunction<KeyT, T> loader)
+		throws IOException
 	{
-		if(expirationSettings == null)
+		long nowNanos = ticker.read();
+		var cachedEntry = getEntry(key, nowNanos);
+		recordHitOrMiss(cachedEntry);
+		if(cachedEntry != null)
+		{
+			if(cachedEntry.shouldStartRefresh(nowNanos))
+				refreshInBackground(key, cachedEntry, loader);
+			return cachedEntry.getValue();
+		}
+		
+		var load = new Load();
+		var runningLoad = runningLoads.putIfAbsent(key, load);
+		if(runningLoad != null)
+			return runningLoad.await(key);
+		
+		try
+		{
+			var value = loadAndPut(key, loader);
+			load.complete(value);
+			return value;
+		}
+		catch(IOException|RuntimeException|Error e)
+		{
+			load.completeExceptionally(e);
+			throw e;
+		}
+		finally
+		{
+			runningLoads.remove(key, load);
+		}
+	}
+	
+	private T loadAndPut(KeyT key, IoFunction<KeyT, T> loader)
+		throws IOException
+	{
+		// another thread might have completed loading between the miss and registering this load
+		var cachedEntry = getEntry(key, ticker.read());
+		if(cachedEntry != null)
+			return cachedEntry.getValue();
+		
+		var value = loadRecordingStats(key, loader);
+		put(key, value);
+		return value;
+	}
+	
+	
+	private T loadRecordingStats(KeyT key, IoFunction<KeyT, T> loader)
+		throws IOException
+	{
+		long startNanos = ticker.read();
+		try
+		{
+			var value = loader.apply(key);
+			if(value == null)
+				throw new IllegalStateException("loader returned null for key "+key);
+			
+			if(statsRecorder != null)
+				statsRecorder.recordLoadSuccess(ticker.read()-startNanos);
+			return value;
+		}
+		catch(IOException|RuntimeException|Error e)
+		{
+			if(statsRecorder != null)
+				statsRecorder.recordLoadFailure(ticker.read()-startNanos);
+			throw e;
+		}
+	}
+	
+	@Nullable
+	private CacheEntry getEntry(KeyT key, long nowNanos)
+	{
+		ifDueExpire(nowNanos);
+		
+		var entry = entries.get(key);
+		if(entry == null)
+			return null;
+		if(entry.isExpired(nowNanos)) // don't remove expired entry because of race conditions, will be removed on next expire anyway
+			return null;
+		
+		entry.markAsUsed(nowNanos);
+		recordAccess(key);
+		return entry;
+	}
+	
+	
+	// BULK
+	@API
+	public void putAll(Map<KeyT, T> values)
+	{
+		for(var entry : values.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+	
+	/**
+	 * Returns the values of all keys which are present in the cache, in the iteration order of the given keys.
+	 */
+	@API
+	public Map<KeyT, T> getAll(Collection<KeyT> keys)
+	{
+		long nowNanos = ticker.read();
+		var values = new LinkedHashMap<KeyT, T>();
+		for(var key : keys)
+		{
+			var entry = getEntry(key, nowNanos);
+			recordHitOrMiss(entry);
+			if(entry != null)
+				values.put(key, entry.getValue());
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Returns the values of all given keys, in the iteration order of the given keys. Present values are looked up in
+	 * one pass, then all missing keys are loaded with a single call to the batch loader.
+	 * <p>
+	 * Unlike {@link #getIo(Object, IoFunction)}, batch loads aren't deduplicated against concurrent loads of the same
+	 * keys.
+	 *
+	 * @param batchLoader loads the values of the given keys, has to return a value for every key
+	 */
+	@API
+	public Map<KeyT, T> getAllIo(Collection<KeyT> keys, IoFunction<Collection<KeyT>, Map<KeyT, T>> batchLoader)
+		throws IOException
+	{
+		long nowNanos = ticker.read();
+		var cachedValues = new HashMap<KeyT, T>();
+		var missingKeys = new LinkedHashSet<KeyT>();
+		for(var key : keys)
+		{
+			var entry = getEntry(key, nowNanos);
+			recordHitOrMiss(entry);
+			if(entry == null)
+				missingKeys.add(key);
+			else
+				cachedValues.put(key, entry.getValue());
+		}
+		
+		if(!missingKeys.isEmpty())
+		{
+			var loadedValues = loadAllRecordingStats(missingKeys, batchLoader);
+			putAll(loadedValues);
+			cachedValues.putAll(loadedValues);
+		}
+		
+		var values = new LinkedHashMap<KeyT, T>();
+		for(var key : keys)
+			values.put(key, cachedValues.get(key));
+		return values;
+	}
+	
+	private Map<KeyT, T> loadAllRecordingStats(Collection<KeyT> keys, IoFunction<Collection<KeyT>, Map<KeyT, T>> batchLoader)
+		throws IOException
+	{
+		long startNanos = ticker.read();
+		try
+		{
+			var values = batchLoader.apply(keys);
+			for(var key : keys)
+				if(values.get(key) == null)
+					throw new IllegalStateException("batch loader returned no value for key "+key);
+			
+			if(statsRecorder != null)
+				statsRecorder.recordLoadSuccess(ticker.read()-startNanos);
+			return values;
+		}
+		catch(IOException|RuntimeException|Error e)
+		{
+			if(statsRecorder != null)
+				statsRecorder.recordLoadFailure(ticker.read()-startNanos);
+			throw e;
+		}
+	}
+	
+	
+	// REFRESH
+	@API
+	public void setRefreshExecutor(Executor refreshExecutor)
+	{
+		ValidationUtil.notNull(refreshExecutor, "refreshExecutor");
+		this.refreshExecutor = refreshExecutor;
+	}
+	
+	private void refreshInBackground(KeyT key, CacheEntry entry, IoFunction<KeyT, T> loader)
+	{
+		try
+		{
+			getRefreshExecutor().execute(()->refresh(key, entry, loader));
+		}
+		catch(RejectedExecutionException e)
+		{
+			LOGGER.warn("Refresh of key {} was rejected by executor", key, e);
+			entry.refreshFinished();
+		}
+	}
+	
+	private void refresh(KeyT key, CacheEntry entry, IoFunction<KeyT, T> loader)
+	{
+		var load = new Load();
+		if(runningLoads.putIfAbsent(key, load) != null)
+		{
+			entry.refreshFinished();
+			return;
+		}
+		
+		try
+		{
+			var value = loadRecordingStats(key, loader);
+			if(entries.get(key) == entry) // don't overwrite a value that was put while refreshing
+				put(key, value);
+			load.complete(value);
+		}
+		catch(IOException|RuntimeException e)
+		{
+			LOGGER.warn("Failed to refresh key {}, keeping old value", key, e);
+			load.completeExceptionally(e);
+			entry.refreshFinished();
+		}
+		catch(Error e)
+		{
+			// threads waiting for this load have to be released before the error propagates
+			load.completeExceptionally(e);
+			entry.refreshFinished();
+			throw e;
+		}
+		finally
+		{
+			runningLoads.remove(key, load);
+		}
+	}
+	
+	private Executor getRefreshExecutor()
+	{
+		var refreshExecutor = this.refreshExecutor;
+		if(refreshExecutor != null)
+			return refreshExecutor;
+		
+		return DefaultExecutor.INSTANCE;
+	}
+	
+	
+	// STATS
+	/**
+	 * Starts recording statistics about this cache. Recording is off by default because it has a small cost on
+	 * every operation. Calling this again keeps the stats recorded so far.
+	 */
+	@API
+	public synchronized void enableStats()
+	{
+		// synchronized so that concurrent calls don't replace a recorder which is already counting
+		if(statsRecorder == null)
+			statsRecorder = new CacheStatsRecorder();
+	}
+	
+	@API
+	public CacheStats getStats()
+	{
+		var statsRecorder = this.statsRecorder;
+		if(statsRecorder == null)
+			throw new IllegalStateException("stats are not enabled for this cache");
+		
+		return statsRecorder.snapshot(entries.size());
+	}
+	
+	private void recordHitOrMiss(@Nullable CacheEntry entry)
+	{
+		var statsRecorder = this.statsRecorder;
+		if(statsRecorder == null)
+			return;
+		
+		if(entry == null)
+			statsRecorder.recordMiss();
+		else
+			statsRecorder.recordHit();
+	}
+	
+	
+	// SIZE
+	@API
+	public int size()
+	{
+		return entries.size();
+	}
+	
+	@API
+	public long getTotalWeight()
+	{
+		if(evictionTracker == null)
+			return entries.size();
+		
+		evictionLock.lock();
+		try
+		{
+			drainBuffers();
+			return evictionTracker.getTotalWeight();
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
+	}
+	
+	
+	// REMOVAL
+	private void removeExplicitly(KeyT key)
+	{
+		if(evictionTracker == null)
+		{
+			removeExplicitlyFromMap(key);
+			return;
+		}
+		
+		evictionLock.lock();
+		try
+		{
+			drainBuffers();
+			if(removeExplicitlyFromMap(key))
+				evictionTracker.remove(key);
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
+	}
+	
+	private boolean removeExplicitlyFromMap(KeyT key)
+	{
+		var removedEntry = entries.remove(key);
+		if(removedEntry == null)
 			return false;
 		
-		boolean isExpireDue = TimeUtil.isOlderThan(lastExpirationCheck, expirationSettings.getExpirationDuration());
-		if(isExpireDue)
-			lastExpirationCheck = Instant.now();
-		return isExpireDue;
+		onRemoved(key, removedEntry, RemovalCause.EXPLICIT);
+		return true;
+	}
+	
+	private void removeAllFromMap()
+	{
+		for(var entry : entries.entrySet())
+			if(entries.remove(entry.getKey(), entry.getValue()))
+				onRemoved(entry.getKey(), entry.getValue(), RemovalCause.EXPLICIT);
+	}
+	
+	private void onRemoved(KeyT key, CacheEntry entry, RemovalCause cause)
+	{
+		var statsRecorder = this.statsRecorder;
+		if(statsRecorder != null)
+			statsRecorder.recordRemoval(cause, 1);
+		
+		var removalListener = this.removalListener;
+		if(removalListener != null)
+			notifyRemovalListener(removalListener, key, entry.getValue(), cause);
 	}
 	
-	private void expire()
+	
+	// REMOVAL LISTENER
+	/**
+	 * Sets a listener which is notified about every entry that is removed from this cache, for example to close
+	 * resources held by the value. The listener is run on the given executor, so slow listeners don't block the
+	 * thread which caused the removal.
+	 */
+	@API
+	public void setRemovalListener(RemovalListener<KeyT, T> removalListener, Executor removalListenerExecutor)
 	{
-		entries.entrySet().removeIf(e->e.getValue().isExpired());
+		ValidationUtil.notNull(removalListener, "removalListener");
+		ValidationUtil.notNull(removalListenerExecutor, "removalListenerExecutor");
+		
+		this.removalListenerExecutor = removalListenerExecutor;
+		this.removalListener = removalListener;
+	}
+	
+	@API
+	public void setRemovalListener(RemovalListener<KeyT, T> removalListener)
+	{
+		setRemovalListener(removalListener, DefaultExecutor.INSTANCE);
+	}
+	
+	private void notifyRemovalListener(RemovalListener<KeyT, T> removalListener, KeyT key, T value, RemovalCause cause)
+	{
+		try
+		{
+			removalListenerExecutor.execute(()->runRemovalListener(removalListener, key, value, cause));
+		}
+		catch(RejectedExecutionException e)
+		{
+			LOGGER.warn("Notification about removal of key {} (cause: {}) was rejected by executor", key, cause, e);
+		}
+	}
+	
+	private static <KeyT, T> void runRemovalListener(RemovalListener<KeyT, T> removalListener, KeyT key, T value, RemovalCause cause)
+	{
+		try
+		{
+			removalListener.onRemoval(key, value, cause);
+		}
+		catch(RuntimeException e)
+		{
+			LOGGER.error("Removal listener failed for key {} (cause: {})", key, cause, e);
+		}
+	}
+	
+	
+	// EVICTION
+	private void recordAccess(KeyT key)
+	{
+		if(evictionTracker == null)
+			return;
+		
+		boolean shouldDrain = accessBuffer.offer(key);
+		if(shouldDrain)
+			tryDrainBuffers();
+	}
+	
+	private void tryDrainBuffers()
+	{
+		if(!evictionLock.tryLock())
+			return;
+		
+		try
+		{
+			drainBuffers();
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
+	}
+	
+	private void drainBuffers()
+	{
+		accessBuffer.drain(evictionTracker::recordAccess);
+		
+		KeyT removedKey;
+		while((removedKey = pendingTrackerRemovals.poll()) != null)
+			if(!entries.containsKey(removedKey)) // key might have been put again after removal
+				evictionTracker.remove(removedKey);
+	}
+	
+	private void evictIfOverMaximum()
+	{
+		KeyT victim;
+		while((victim = evictionTracker.pollVictim()) != null)
+		{
+			var evictedEntry = entries.remove(victim);
+			if(evictedEntry != null)
+				onRemoved(victim, evictedEntry, RemovalCause.SIZE);
+		}
+	}
+	
+	
+	// EXPIRATION
+	/**
+	 * Examines a bounded number of entries for expiration. Only one thread sweeps at a time, other threads skip the
+	 * sweep instead of waiting. A full pass over all entries is started every fraction of the expiration duration.
+	 */
+	private void ifDueExpire(long nowNanos)
+	{
+		if(expirationSettings == null)
+			return;
+		if(nowNanos-nextSweepPassNanos < 0)
+			return;
+		if(!sweeping.compareAndSet(false, true))
+			return;
+		
+		try
+		{
+			sweepStep(nowNanos);
+		}
+		finally
+		{
+			sweeping.set(false);
+		}
+	}
+	
+	private void sweepStep(long nowNanos)
+	{
+		if(sweepCursor == null)
+			sweepCursor = entries.entrySet().iterator();
+		
+		for(int i = 0; i < SWEEP_BATCH_SIZE && sweepCursor.hasNext(); i++)
+		{
+			var entry = sweepCursor.next();
+			if(entry.getValue().isExpired(nowNanos))
+				removeExpired(entry.getKey(), entry.getValue());
+		}
+		
+		if(evictionTracker != null && !pendingTrackerRemovals.isEmpty())
+			tryDrainBuffers();
+		
+		if(!sweepCursor.hasNext())
+		{
+			sweepCursor = null;
+			long sweepPassInterval = expirationSettings.getExpirationDuration().toNanos()/SWEEP_PASSES_PER_EXPIRATION_DURATION;
+			nextSweepPassNanos = nowNanos+sweepPassInterval;
+		}
+	}
+	
+	private void removeExpired(KeyT key, CacheEntry entry)
+	{
+		boolean removed = entries.remove(key, entry);
+		if(!removed)
+			return;
+		
+		onRemoved(key, entry, RemovalCause.EXPIRED);
+		if(evictionTracker != null)
+			pendingTrackerRemovals.add(key);
+	}
+	
+	
+	// LOAD
+	private class Load
+	{
+		
+		// STATE
+		private final Thread loadingThread = Thread.currentThread();
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		
+		
+		// RESULT
+		private void complete(T value)
+		{
+			result.complete(value);
+		}
+		
+		private void completeExceptionally(Throwable throwable)
+		{
+			result.completeExceptionally(throwable);
+		}
+		
+		private T await(KeyT key)
+			throws IOException
+		{
+			if(Thread.currentThread() == loadingThread)
+				throw new IllegalStateException("recursive load of key "+key);
+			
+			try
+			{
+				return result.join();
+			}
+			catch(CompletionException e)
+			{
+				var cause = e.getCause();
+				if(cause instanceof IOException)
+					throw (IOException) cause;
+				if(cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if(cause instanceof Error)
+					throw (Error) cause;
+				throw e;
+			}
+		}
+		
 	}
 	
 	
 	// ENTRY
-	@RequiredArgsConstructor
 	private class CacheEntry
 	{
 		
+		// CONSTANTS
+		private static final long NEVER = -1;
+		
 		// BASE ATTRIBUTES
 		@Getter
 		private final T value;
-		private final Duration expirationDuration = determineExpirationDuration();
+		private final long expirationDurationNanos;
+		private final long refreshAfterNanos;
 		
 		// STATUS
-		private final Instant created = Instant.now();
-		private Instant lastUsed = created;
+		private final long createdNanos;
+		private volatile long lastUsedNanos;
+		private final AtomicBoolean refreshing = new AtomicBoolean(false);
 		
 		
 		// INIT
-		private Duration determineExpirationDuration()
+		private CacheEntry(T value)
+		{
+			this.value = value;
+			expirationDurationNanos = determineExpirationDurationNanos();
+			refreshAfterNanos = determineRefreshAfterNanos();
+			
+			createdNanos = ticker.read();
+			lastUsedNanos = createdNanos;
+		}
+		
+		private long determineExpirationDurationNanos()
 		{
 			if(expirationSettings == null)
-				return null;
+				return NEVER;
 			
 			var expirationDuration = expirationSettings.getExpirationDuration();
 			if(expirationSettings.shouldRandomizeExpirationDuration())
@@ -166,25 +890,71 @@ public final class LazyCache<KeyT, T>
 				expirationDuration = RandomUtil.distributeRel(expirationDuration, maxOffsetRel);
 			}
 			
-			return expirationDuration;
+			return expirationDuration.toNanos();
+		}
+		
+		private long determineRefreshAfterNanos()
+		{
+			if(expirationDurationNanos == NEVER)
+				return NEVER;
+			
+			var refreshAfterLifetimeFraction = expirationSettings.getRefreshAfterLifetimeFraction();
+			if(refreshAfterLifetimeFraction.isEmpty())
+				return NEVER;
+			
+			return (long) (expirationDurationNanos*refreshAfterLifetimeFraction.get());
 		}
 		
 		
 		// EXPIRATION
-		private void markAsUsed()
+		private void markAsUsed(long nowNanos)
 		{
-			lastUsed = Instant.now();
+			lastUsedNanos = nowNanos;
 		}
 		
-		private boolean isExpired()
+		private boolean isExpired(long nowNanos)
 		{
-			if(expirationDuration == null)
+			if(expirationDurationNanos == NEVER)
 				return false;
 			
-			if(expirationSettings.shouldOnlyExpireUnused())
-				return TimeUtil.isOlderThan(lastUsed, expirationDuration);
+			long referenceNanos = expirationSettings.shouldOnlyExpireUnused() ? lastUsedNanos : createdNanos;
+			return nowNanos-referenceNanos > expirationDurationNanos;
+		}
+		
+		
+		// REFRESH
+		private boolean shouldStartRefresh(long nowNanos)
+		{
+			if(refreshAfterNanos == NEVER || refreshing.get())
+				return false;
+			if(nowNanos-createdNanos <= refreshAfterNanos)
+				return false;
+			
+			return refreshing.compareAndSet(false, true);
+		}
+		
+		private void refreshFinished()
+		{
+			refreshing.set(false);
+		}
+		
+	}
+	
+	private static final class DefaultExecutor
+	{
+		
+		// INSTANCE
+		private static final Executor INSTANCE = create();
+		
+		
+		// INIT
+		private static Executor create()
+		{
+			var threadCount = new AtomicInteger(0);
+			int numberOfThreads = Runtime.getRuntime().availableProcessors();
 			
-			return TimeUtil.isOlderThan(created, expirationDuration);
+			return Executors.newFixedThreadPool(numberOfThreads, r->
+				ThreadUtil.createDaemonThread(r, "lazyCache-background-"+threadCount.incrementAndGet()));
 		}
 		
 	}
@@ -0,0 +1,144 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import javax.annotation.Nullable;
+
+/**
+ * Constant time LFU: nodes are kept in buckets of equal frequency, the buckets form a list sorted by frequency.
+ */
+final class LfuEvictionTracker<KeyT>
+	extends EvictionTracker<KeyT>
+{
+	
+	// STATE
+	@Nullable
+	private FrequencyBucket<KeyT> lowestFrequencyBucket;
+	@Nullable
+	private Node<KeyT> newestNode;
+	
+	
+	// INIT
+	LfuEvictionTracker(long maximumWeight)
+	{
+		super(maximumWeight);
+	}
+	
+	
+	// POLICY
+	@Override
+	protected void onAdd(Node<KeyT> node)
+	{
+		var bucket = lowestFrequencyBucket;
+		if(bucket == null || bucket.frequency != 1)
+			bucket = insertBucketAfter(null, 1);
+		
+		bucket.addLast(node);
+		newestNode = node;
+	}
+	
+	@Override
+	protected void onAccess(Node<KeyT> node)
+	{
+		var bucket = (FrequencyBucket<KeyT>) node.deque;
+		if(bucket.frequency == Integer.MAX_VALUE)
+		{
+			bucket.moveToLast(node);
+			return;
+		}
+		
+		var nextBucket = bucket.next;
+		if(nextBucket == null || nextBucket.frequency != bucket.frequency+1)
+			nextBucket = insertBucketAfter(bucket, bucket.frequency+1);
+		
+		bucket.remove(node);
+		nextBucket.addLast(node);
+		removeBucketIfEmpty(bucket);
+	}
+	
+	@Override
+	protected void onRemove(Node<KeyT> node)
+	{
+		var bucket = (FrequencyBucket<KeyT>) node.deque;
+		bucket.remove(node);
+		removeBucketIfEmpty(bucket);
+		
+		if(node == newestNode)
+			newestNode = null;
+	}
+	
+	@Override
+	protected void onClear()
+	{
+		lowestFrequencyBucket = null;
+		newestNode = null;
+	}
+	
+	@Override
+	protected Node<KeyT> selectVictim()
+	{
+		var victim = lowestFrequencyBucket.peekFirst();
+		
+		// the newest entry always has the lowest frequency, evicting it would make it impossible for new entries to stay
+		if(victim == newestNode && lowestFrequencyBucket.next != null)
+			victim = lowestFrequencyBucket.next.peekFirst();
+		return victim;
+	}
+	
+	
+	// BUCKETS
+	private FrequencyBucket<KeyT> insertBucketAfter(@Nullable FrequencyBucket<KeyT> previous, int frequency)
+	{
+		var bucket = new FrequencyBucket<KeyT>(frequency);
+		bucket.previous = previous;
+		if(previous == null)
+		{
+			bucket.next = lowestFrequencyBucket;
+			lowestFrequencyBucket = bucket;
+		}
+		else
+		{
+			bucket.next = previous.next;
+			previous.next = bucket;
+		}
+		
+		if(bucket.next != null)
+			bucket.next.previous = bucket;
+		return bucket;
+	}
+	
+	private void removeBucketIfEmpty(FrequencyBucket<KeyT> bucket)
+	{
+		if(!bucket.isEmpty())
+			return;
+		
+		if(bucket.previous == null)
+			lowestFrequencyBucket = bucket.next;
+		else
+			bucket.previous.next = bucket.next;
+		
+		if(bucket.next != null)
+			bucket.next.previous = bucket.previous;
+	}
+	
+	private static final class FrequencyBucket<KeyT>
+		extends NodeDeque<KeyT>
+	{
+		
+		// ATTRIBUTES
+		private final int frequency;
+		
+		// LINKS
+		@Nullable
+		private FrequencyBucket<KeyT> previous;
+		@Nullable
+		private FrequencyBucket<KeyT> next;
+		
+		
+		// INIT
+		private FrequencyBucket(int frequency)
+		{
+			this.frequency = frequency;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,333 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import com.google.common.base.Ticker;
+import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open addressing hash table with primitive long keys, backing {@link LongLazyCache}.
+ * <p>
+ * Entries are stored in parallel arrays using linear probing and backward shift deletion, so there are no per entry
+ * objects and no boxed keys. Only one timestamp is stored per entry: the creation time, or the time of last use if
+ * only unused entries expire. An expiration duration per entry is only stored if the duration is randomized.
+ * <p>
+ * Readers refresh the time of last use while holding only the read lock, so timestamps are written with opaque access
+ * to keep concurrent readers from tearing them.
+ */
+final class LongKeyCacheTable<T>
+{
+	
+	// CONSTANTS
+	private static final int MINIMUM_CAPACITY = 16;
+	private static final double MAXIMUM_LOAD_FACTOR = 0.6;
+	private static final int SWEEP_BATCH_SIZE = 64;
+	private static final int READS_PER_SWEEP_STEP = 16;
+	private static final double RANDOMIZATION_MAX_OFFSET_REL = 0.2;
+	
+	// SETTINGS
+	@Nullable
+	private final ExpirationSettings expirationSettings;
+	private final Ticker ticker;
+	private final long expirationDurationNanos;
+	
+	// STATE
+	private final StampedLock lock = new StampedLock();
+	private long[] keys;
+	private Object[] values;
+	private AtomicLongArray timestampNanos;
+	@Nullable
+	private long[] expirationDurationsNanos;
+	private int size = 0;
+	private int sweepCursor = 0;
+	
+	
+	// INIT
+	LongKeyCacheTable(@Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		this.expirationSettings = expirationSettings;
+		this.ticker = ticker;
+		expirationDurationNanos = expirationSettings == null ? -1 : expirationSettings.getExpirationDuration().toNanos();
+		
+		allocate(MINIMUM_CAPACITY);
+	}
+	
+	
+	// TABLE
+	void put(long key, T value)
+	{
+		if(value == null)
+			throw new IllegalArgumentException("value can't be null");
+		
+		long nowNanos = ticker.read();
+		long stamp = lock.writeLock();
+		try
+		{
+			sweepStep(nowNanos);
+			if(size+1 > keys.length*MAXIMUM_LOAD_FACTOR)
+				allocate(keys.length*2);
+			
+			int slot = findSlot(key);
+			if(values[slot] == null)
+				size++;
+			
+			keys[slot] = key;
+			values[slot] = value;
+			timestampNanos.setPlain(slot, nowNanos);
+			if(expirationDurationsNanos != null)
+				expirationDurationsNanos[slot] = randomizedExpirationDurationNanos();
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	@Nullable
+	T get(long key)
+	{
+		long nowNanos = ticker.read();
+		var value = lookUp(key, nowNanos, true);
+		sweepStepOnRead(nowNanos);
+		return value;
+	}
+	
+	boolean containsKey(long key)
+	{
+		long nowNanos = ticker.read();
+		boolean containsKey = lookUp(key, nowNanos, false) != null;
+		sweepStepOnRead(nowNanos);
+		return containsKey;
+	}
+	
+	void remove(long key)
+	{
+		long stamp = lock.writeLock();
+		try
+		{
+			int slot = findSlot(key);
+			if(values[slot] != null)
+				deleteSlot(slot);
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	void clear()
+	{
+		long stamp = lock.writeLock();
+		try
+		{
+			allocate(MINIMUM_CAPACITY);
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	int size()
+	{
+		long stamp = lock.readLock();
+		try
+		{
+			return size;
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	
+	// LOOKUP
+	@Nullable
+	private T lookUp(long key, long nowNanos, boolean markUsed)
+	{
+		long stamp = lock.readLock();
+		try
+		{
+			int slot = findSlot(key);
+			@SuppressWarnings("unchecked")
+			var value = (T) values[slot];
+			if(value == null || isExpired(slot, nowNanos))
+				return null;
+			
+			if(markUsed && shouldOnlyExpireUnused()) // concurrent readers all write roughly the same time, any of them may win
+				timestampNanos.setOpaque(slot, nowNanos);
+			return value;
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+	
+	
+	// EXPIRATION
+	private boolean isExpired(int slot, long nowNanos)
+	{
+		if(expirationSettings == null)
+			return false;
+		
+		long slotExpirationDurationNanos = expirationDurationsNanos == null ?
+			expirationDurationNanos :
+			expirationDurationsNanos[slot];
+		return nowNanos-timestampNanos.getOpaque(slot) > slotExpirationDurationNanos;
+	}
+	
+	private boolean shouldOnlyExpireUnused()
+	{
+		return expirationSettings != null && expirationSettings.shouldOnlyExpireUnused();
+	}
+	
+	private long randomizedExpirationDurationNanos()
+	{
+		var randomized = RandomUtil.distributeRel(expirationSettings.getExpirationDuration(), RANDOMIZATION_MAX_OFFSET_REL);
+		return randomized.toNanos();
+	}
+	
+	/**
+	 * Sweeps on a random one of every few reads, so that a read only workload also gets rid of expired entries. Picking
+	 * reads randomly instead of counting them keeps reads from all writing to one shared counter. Reads don't wait for
+	 * the write lock, if it is taken the sweep step is left to a later read or write.
+	 */
+	private void sweepStepOnRead(long nowNanos)
+	{
+		if(expirationSettings == null || ThreadLocalRandom.current().nextInt(READS_PER_SWEEP_STEP) != 0)
+			return;
+		
+		long stamp = lock.tryWriteLock();
+		if(stamp == 0)
+			return;
+		
+		try
+		{
+			sweepStep(nowNanos);
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Examines a bounded number of slots for expired entries, so that expiration cost is spread over all operations.
+	 */
+	private void sweepStep(long nowNanos)
+	{
+		if(expirationSettings == null || size == 0)
+			return;
+		
+		for(int i = 0; i < SWEEP_BATCH_SIZE; i++)
+		{
+			if(sweepCursor >= keys.length)
+				sweepCursor = 0;
+			
+			// deleting shifts a following entry into this slot, so only advance if nothing was deleted
+			if(values[sweepCursor] != null && isExpired(sweepCursor, nowNanos))
+				deleteSlot(sweepCursor);
+			else
+				sweepCursor++;
+		}
+	}
+	
+	
+	// PROBING
+	private int findSlot(long key)
+	{
+		int mask = keys.length-1;
+		int slot = homeSlot(key, mask);
+		while(values[slot] != null && keys[slot] != key)
+			slot = (slot+1)&mask;
+		
+		return slot;
+	}
+	
+	private static int homeSlot(long key, int mask)
+	{
+		// murmur3 finalizer
+		long hash = key;
+		hash ^= hash>>>33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash>>>33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash>>>33;
+		return ((int) hash)&mask;
+	}
+	
+	private void deleteSlot(int slot)
+	{
+		int mask = keys.length-1;
+		int emptySlot = slot;
+		int current = slot;
+		while(true)
+		{
+			current = (current+1)&mask;
+			if(values[current] == null)
+				break;
+			
+			// entries can only be moved back if that doesn't move them before their home slot
+			int home = homeSlot(keys[current], mask);
+			boolean homeBetween = emptySlot <= current ?
+				(emptySlot < home && home <= current) :
+				(emptySlot < home || home <= current);
+			if(homeBetween)
+				continue;
+			
+			moveSlot(current, emptySlot);
+			emptySlot = current;
+		}
+		
+		values[emptySlot] = null;
+		size--;
+	}
+	
+	private void moveSlot(int from, int to)
+	{
+		keys[to] = keys[from];
+		values[to] = values[from];
+		timestampNanos.setPlain(to, timestampNanos.getPlain(from));
+		if(expirationDurationsNanos != null)
+			expirationDurationsNanos[to] = expirationDurationsNanos[from];
+	}
+	
+	
+	// CAPACITY
+	private void allocate(int capacity)
+	{
+		var oldKeys = keys;
+		var oldValues = values;
+		var oldTimestampNanos = timestampNanos;
+		var oldExpirationDurationsNanos = expirationDurationsNanos;
+		
+		keys = new long[capacity];
+		values = new Object[capacity];
+		timestampNanos = new AtomicLongArray(capacity);
+		boolean randomized = expirationSettings != null && expirationSettings.shouldRandomizeExpirationDuration();
+		expirationDurationsNanos = randomized ? new long[capacity] : null;
+		size = 0;
+		sweepCursor = 0;
+		
+		if(oldValues == null)
+			return;
+		
+		for(int i = 0; i < oldValues.length; i++)
+			if(oldValues[i] != null)
+			{
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+				timestampNanos.setPlain(slot, oldTimestampNanos.getPlain(i));
+				if(expirationDurationsNanos != null)
+					expirationDurationsNanos[slot] = oldExpirationDurationsNanos[i];
+				size++;
+			}
+	}
+	
+}
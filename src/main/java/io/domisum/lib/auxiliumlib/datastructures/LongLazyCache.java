@@ -0,0 +1,149 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import com.google.common.base.Ticker;
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Variant of {@link LazyCache} with long keys, which are stored without boxing.
+ * <p>
+ * Entries live in parallel arrays of keys, values and timestamps instead of per entry objects, which makes lookups
+ * allocation free. Expiration works the same as in {@link LazyCache}, but there is no eviction,
+ * refresh ahead or single flight loading.
+ */
+@API
+public final class LongLazyCache<T>
+{
+	
+	// STATE
+	private final LongKeyCacheTable<T> table;
+	
+	
+	// INIT
+	private LongLazyCache(@Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		table = new LongKeyCacheTable<>(expirationSettings, ticker);
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> of(@Nullable ExpirationSettings expirationSettings)
+	{
+		return of(expirationSettings, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a cache which reads time from the given ticker instead of {@link System#nanoTime()}, for example to
+	 * control time in tests.
+	 */
+	@API
+	public static <T> LongLazyCache<T> of(@Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		ValidationUtil.notNull(ticker, "ticker");
+		return new LongLazyCache<>(expirationSettings, ticker);
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> neverExpire()
+	{
+		return of(null);
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> expireAfter(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.after(expirationDuration));
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> expireAfterRandomized(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.afterRandomized(expirationDuration));
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> expireUnusedAfter(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.unusedAfter(expirationDuration));
+	}
+	
+	@API
+	public static <T> LongLazyCache<T> expireUnusedAfterRandomized(Duration expirationDuration)
+	{
+		return of(ExpirationSettings.unusedAfterRandomized(expirationDuration));
+	}
+	
+	
+	// CACHE
+	@API
+	public void put(long key, T value)
+	{
+		table.put(key, value);
+	}
+	
+	@API
+	public void remove(long key)
+	{
+		table.remove(key);
+	}
+	
+	@API
+	public void clear()
+	{
+		table.clear();
+	}
+	
+	
+	@API
+	public Optional<T> get(long key)
+	{
+		return Optional.ofNullable(getIfPresent(key));
+	}
+	
+	/**
+	 * Same as {@link #get(long)}, but returns null instead of an Optional so that a lookup doesn't allocate.
+	 */
+	@API
+	@Nullable
+	public T getIfPresent(long key)
+	{
+		return table.get(key);
+	}
+	
+	/**
+	 * Returns the cached value for the key or loads it using the loader if it isn't present. Concurrent calls for the
+	 * same key may each run the loader.
+	 */
+	@API
+	public T get(long key, LongFunction<T> loader)
+	{
+		var cachedValue = table.get(key);
+		if(cachedValue != null)
+			return cachedValue;
+		
+		var value = loader.apply(key);
+		table.put(key, value);
+		return value;
+	}
+	
+	/**
+	 * Checks whether an unexpired value is cached for the key. Unlike reading the value, this doesn't count as use of
+	 * the entry.
+	 */
+	@API
+	public boolean containsKey(long key)
+	{
+		return table.containsKey(key);
+	}
+	
+	@API
+	public int size()
+	{
+		return table.size();
+	}
+	
+}
@@ -0,0 +1,49 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+final class LruEvictionTracker<KeyT>
+	extends EvictionTracker<KeyT>
+{
+	
+	// STATE
+	private final NodeDeque<KeyT> accessOrder = new NodeDeque<>();
+	
+	
+	// INIT
+	LruEvictionTracker(long maximumWeight)
+	{
+		super(maximumWeight);
+	}
+	
+	
+	// POLICY
+	@Override
+	protected void onAdd(Node<KeyT> node)
+	{
+		accessOrder.addLast(node);
+	}
+	
+	@Override
+	protected void onAccess(Node<KeyT> node)
+	{
+		accessOrder.moveToLast(node);
+	}
+	
+	@Override
+	protected void onRemove(Node<KeyT> node)
+	{
+		accessOrder.remove(node);
+	}
+	
+	@Override
+	protected void onClear()
+	{
+		accessOrder.clear();
+	}
+	
+	@Override
+	protected Node<KeyT> selectVictim()
+	{
+		return accessOrder.peekFirst();
+	}
+	
+}
@@ -0,0 +1,534 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import com.google.common.base.Ticker;
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.contracts.serdes.ByteArraySerdes;
+import io.domisum.lib.auxiliumlib.contracts.serdes.InputStreamSerdes;
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import io.domisum.lib.auxiliumlib.util.BufferUtil;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache which stores serialized values outside the java heap, so that large caches don't add to garbage collection
+ * pauses. Only the keys and the small index entries pointing to the values are kept on the heap.
+ * <p>
+ * The memory budget is split into slabs which are filled one after another. Once all slabs are full, the oldest slab
+ * is evicted as a whole and reused, so eviction is first in, first out at slab granularity. Values larger than a slab
+ * are not cached. Expiration works the same as in {@link LazyCache}. Every store also examines a few entries and
+ * removes them if they have expired, so that entries which are never read again don't stay in the index.
+ * <p>
+ * The slabs are released by {@link #close()}, otherwise only once the cache is garbage collected.
+ */
+@API
+public final class OffHeapLazyCache<KeyT, T>
+	implements AutoCloseable
+{
+	
+	// CONSTANTS
+	private static final int SLAB_COUNT = 16;
+	private static final int MINIMUM_SLAB_SIZE_BYTES = 64*1024;
+	private static final double RANDOMIZATION_MAX_OFFSET_REL = 0.2;
+	private static final int SWEEP_BATCH_SIZE = 8;
+	
+	// SETTINGS
+	private final ByteArraySerdes<T> serdes;
+	@Nullable
+	private final ExpirationSettings expirationSettings;
+	private final Ticker ticker;
+	private final SlabAllocator slabAllocator;
+	private final int slabSizeBytes;
+	
+	// STATE
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<KeyT, Location> index = new HashMap<>();
+	private final ByteBuffer[] slabs;
+	private final int[] slabGenerations;
+	private final List<List<KeyT>> slabKeys = new ArrayList<>();
+	private int currentSlab = 0;
+	private int currentSlabOffset = 0;
+	private int sweepSlab = 0;
+	private int sweepPosition = 0;
+	private boolean closed = false;
+	
+	
+	// INIT
+	private OffHeapLazyCache(
+		ByteArraySerdes<T> serdes, long budgetBytes, SlabAllocator slabAllocator,
+		@Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		this.serdes = serdes;
+		this.expirationSettings = expirationSettings;
+		this.ticker = ticker;
+		this.slabAllocator = slabAllocator;
+		
+		// budgets below the minimum slab size get a single slab of the budget size, so the budget is never exceeded
+		long slabSizeBytesLong = Math.min(budgetBytes, Math.max(MINIMUM_SLAB_SIZE_BYTES, (budgetBytes+SLAB_COUNT-1)/SLAB_COUNT));
+		slabSizeBytes = (int) Math.min(Integer.MAX_VALUE-8, slabSizeBytesLong);
+		int slabCount = (int) Math.max(1, budgetBytes/slabSizeBytes);
+		
+		slabs = new ByteBuffer[slabCount];
+		slabGenerations = new int[slabCount];
+		for(int i = 0; i < slabCount; i++)
+			slabKeys.add(new ArrayList<>());
+	}
+	
+	@API
+	public static <KeyT, T> OffHeapLazyCache<KeyT, T> of(
+		InputStreamSerdes<T> serdes, long budgetBytes, @Nullable ExpirationSettings expirationSettings)
+	{
+		return of(serdes, budgetBytes, expirationSettings, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a cache which reads time from the given ticker instead of {@link System#nanoTime()}, for example to
+	 * control time in tests.
+	 */
+	@API
+	public static <KeyT, T> OffHeapLazyCache<KeyT, T> of(
+		InputStreamSerdes<T> serdes, long budgetBytes, @Nullable ExpirationSettings expirationSettings, Ticker ticker)
+	{
+		ValidationUtil.notNull(serdes, "serdes");
+		ValidationUtil.notNull(ticker, "ticker");
+		validateBudget(budgetBytes);
+		return new OffHeapLazyCache<>(ByteArraySerdes.of(serdes), budgetBytes, SlabAllocator.DIRECT, expirationSettings, ticker);
+	}
+	
+	@API
+	public static <KeyT, T> OffHeapLazyCache<KeyT, T> of(
+		StringSerdes<T> serdes, long budgetBytes, @Nullable ExpirationSettings expirationSettings)
+	{
+		ValidationUtil.notNull(serdes, "serdes");
+		validateBudget(budgetBytes);
+		return new OffHeapLazyCache<>(ByteArraySerdes.of(serdes), budgetBytes, SlabAllocator.DIRECT,
+			expirationSettings, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Creates a cache whose slabs are memory mapped regions of the given file instead of direct buffers. This lets the
+	 * operating system page cold parts of the cache out. The file is created if needed and its content is overwritten.
+	 */
+	@API
+	public static <KeyT, T> OffHeapLazyCache<KeyT, T> memoryMapped(
+		InputStreamSerdes<T> serdes, Path file, long budgetBytes, @Nullable ExpirationSettings expirationSettings)
+	{
+		ValidationUtil.notNull(serdes, "serdes");
+		ValidationUtil.notNull(file, "file");
+		validateBudget(budgetBytes);
+		
+		var slabAllocator = new MappedSlabAllocator(file);
+		return new OffHeapLazyCache<>(ByteArraySerdes.of(serdes), budgetBytes, slabAllocator, expirationSettings, Ticker.systemTicker());
+	}
+	
+	/**
+	 * Same as {@link #memoryMapped(InputStreamSerdes, Path, long, ExpirationSettings)}, but for a {@link StringSerdes}.
+	 */
+	@API
+	public static <KeyT, T> OffHeapLazyCache<KeyT, T> memoryMapped(
+		StringSerdes<T> serdes, Path file, long budgetBytes, @Nullable ExpirationSettings expirationSettings)
+	{
+		ValidationUtil.notNull(serdes, "serdes");
+		ValidationUtil.notNull(file, "file");
+		validateBudget(budgetBytes);
+		
+		var slabAllocator = new MappedSlabAllocator(file);
+		return new OffHeapLazyCache<>(ByteArraySerdes.of(serdes), budgetBytes, slabAllocator, expirationSettings, Ticker.systemTicker());
+	}
+	
+	private static void validateBudget(long budgetBytes)
+	{
+		if(budgetBytes <= 0)
+			throw new IllegalArgumentException("budgetBytes has to be positive, but was "+budgetBytes);
+	}
+	
+	
+	// CACHE
+	/**
+	 * Serializes the value and stores it off heap. If the serialized value is larger than a slab, it isn't cached and
+	 * a previous value for the key is removed.
+	 */
+	@API
+	public void put(KeyT key, T value)
+	{
+		ValidationUtil.notNull(key, "key");
+		ValidationUtil.notNull(value, "value");
+		byte[] bytes = serdes.serialize(value);
+		
+		// empty values take up one byte as well, otherwise any number of them would fit into a slab
+		int reservedLength = Math.max(1, bytes.length);
+		
+		lock.writeLock().lock();
+		try
+		{
+			if(closed)
+				throw new IllegalStateException("can't put values after cache was closed");
+			
+			long nowNanos = ticker.read();
+			sweepStep(nowNanos);
+			if(reservedLength > slabSizeBytes)
+			{
+				index.remove(key);
+				return;
+			}
+			
+			if(currentSlabOffset+reservedLength > slabSizeBytes)
+				advanceSlab();
+			
+			var slab = getOrAllocateSlab(currentSlab);
+			slab.position(currentSlabOffset);
+			slab.put(bytes);
+			
+			var location = new Location(currentSlab, slabGenerations[currentSlab], currentSlabOffset, bytes.length,
+				nowNanos, determineExpirationDurationNanos());
+			index.put(key, location);
+			slabKeys.get(currentSlab).add(key);
+			currentSlabOffset += reservedLength;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	@API
+	public void remove(KeyT key)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			index.remove(key);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	/**
+	 * Removes all entries. Slabs which have already been allocated are kept for reuse.
+	 */
+	@API
+	public void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			index.clear();
+			for(int i = 0; i < slabs.length; i++)
+			{
+				slabGenerations[i]++;
+				slabKeys.get(i).clear();
+			}
+			
+			currentSlab = 0;
+			currentSlabOffset = 0;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	@API
+	public Optional<T> get(KeyT key)
+	{
+		return Optional.ofNullable(getIfPresent(key));
+	}
+	
+	@API
+	@Nullable
+	public T getIfPresent(KeyT key)
+	{
+		long nowNanos = ticker.read();
+		byte[] bytes;
+		Location expiredLocation = null;
+		lock.readLock().lock();
+		try
+		{
+			var location = index.get(key);
+			if(location == null)
+				return null;
+			
+			if(location.isExpired(nowNanos, expirationSettings))
+			{
+				expiredLocation = location;
+				bytes = null;
+			}
+			else
+			{
+				location.markAsUsed(nowNanos);
+				bytes = readBytes(location);
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		if(expiredLocation != null)
+		{
+			removeIfUnchanged(key, expiredLocation);
+			return null;
+		}
+		
+		return serdes.deserialize(bytes);
+	}
+	
+	@API
+	public boolean containsKey(KeyT key)
+	{
+		long nowNanos = ticker.read();
+		lock.readLock().lock();
+		try
+		{
+			var location = index.get(key);
+			return location != null && !location.isExpired(nowNanos, expirationSettings);
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	@API
+	public int size()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return index.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	
+	/**
+	 * Removes all entries and releases the slabs. Afterwards, the cache is empty and putting values fails.
+	 */
+	@Override
+	public void close()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			if(closed)
+				return;
+			closed = true;
+			
+			index.clear();
+			for(int i = 0; i < slabs.length; i++)
+			{
+				if(slabs[i] != null)
+					BufferUtil.release(slabs[i]);
+				slabs[i] = null;
+				slabKeys.get(i).clear();
+			}
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	// SLABS
+	private ByteBuffer getOrAllocateSlab(int slabIndex)
+	{
+		if(slabs[slabIndex] == null)
+			slabs[slabIndex] = slabAllocator.allocate(slabIndex, slabSizeBytes);
+		return slabs[slabIndex];
+	}
+	
+	private byte[] readBytes(Location location)
+	{
+		byte[] bytes = new byte[location.length];
+		var slab = slabs[location.slab].duplicate();
+		slab.position(location.offset);
+		slab.get(bytes);
+		return bytes;
+	}
+	
+	private void advanceSlab()
+	{
+		currentSlab = (currentSlab+1)%slabs.length;
+		currentSlabOffset = 0;
+		evictSlab(currentSlab);
+	}
+	
+	private void evictSlab(int slabIndex)
+	{
+		int generation = slabGenerations[slabIndex];
+		var keys = slabKeys.get(slabIndex);
+		for(var key : keys)
+		{
+			// the key might have been put again since, in which case its current location is in another slab
+			var location = index.get(key);
+			if(location != null && location.slab == slabIndex && location.generation == generation)
+				index.remove(key);
+		}
+		
+		keys.clear();
+		slabGenerations[slabIndex]++;
+	}
+	
+	
+	// EXPIRATION
+	private long determineExpirationDurationNanos()
+	{
+		if(expirationSettings == null)
+			return Location.NEVER;
+		
+		var expirationDuration = expirationSettings.getExpirationDuration();
+		if(expirationSettings.shouldRandomizeExpirationDuration())
+			expirationDuration = RandomUtil.distributeRel(expirationDuration, RANDOMIZATION_MAX_OFFSET_REL);
+		return expirationDuration.toNanos();
+	}
+	
+	/**
+	 * Examines the next few keys, going through the slabs in order, and removes them if they have expired.
+	 */
+	private void sweepStep(long nowNanos)
+	{
+		if(expirationSettings == null)
+			return;
+		
+		for(int i = 0; i < SWEEP_BATCH_SIZE; i++)
+		{
+			var keys = slabKeys.get(sweepSlab);
+			if(sweepPosition >= keys.size())
+			{
+				sweepSlab = (sweepSlab+1)%slabs.length;
+				sweepPosition = 0;
+				continue;
+			}
+			
+			var key = keys.get(sweepPosition++);
+			var location = index.get(key);
+			if(location != null && location.isExpired(nowNanos, expirationSettings))
+				index.remove(key);
+		}
+	}
+	
+	private void removeIfUnchanged(KeyT key, Location location)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			index.remove(key, location);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	
+	// LOCATION
+	private static class Location
+	{
+		
+		private static final long NEVER = -1;
+		
+		private final int slab;
+		private final int generation;
+		private final int offset;
+		private final int length;
+		private final long createdNanos;
+		private final long expirationDurationNanos;
+		private volatile long lastUsedNanos;
+		
+		
+		// INIT
+		public Location(int slab, int generation, int offset, int length, long createdNanos, long expirationDurationNanos)
+		{
+			this.slab = slab;
+			this.generation = generation;
+			this.offset = offset;
+			this.length = length;
+			this.createdNanos = createdNanos;
+			this.expirationDurationNanos = expirationDurationNanos;
+			lastUsedNanos = createdNanos;
+		}
+		
+		
+		// LOCATION
+		public void markAsUsed(long nowNanos)
+		{
+			lastUsedNanos = nowNanos;
+		}
+		
+		public boolean isExpired(long nowNanos, @Nullable ExpirationSettings expirationSettings)
+		{
+			if(expirationDurationNanos == NEVER)
+				return false;
+			
+			long referenceNanos = expirationSettings.shouldOnlyExpireUnused() ? lastUsedNanos : createdNanos;
+			return nowNanos-referenceNanos > expirationDurationNanos;
+		}
+		
+	}
+	
+	
+	// ALLOCATION
+	private interface SlabAllocator
+	{
+		
+		SlabAllocator DIRECT = (slabIndex, sizeBytes)->ByteBuffer.allocateDirect(sizeBytes);
+		
+		
+		ByteBuffer allocate(int slabIndex, int sizeBytes);
+		
+	}
+	
+	private static class MappedSlabAllocator
+		implements SlabAllocator
+	{
+		
+		private final Path file;
+		
+		
+		// INIT
+		public MappedSlabAllocator(Path file)
+		{
+			this.file = file;
+		}
+		
+		
+		// ALLOCATE
+		@Override
+		public ByteBuffer allocate(int slabIndex, int sizeBytes)
+		{
+			try(var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+			{
+				// the mapping stays valid after the channel is closed
+				return channel.map(MapMode.READ_WRITE, (long) slabIndex*sizeBytes, sizeBytes);
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+	}
+	
+}
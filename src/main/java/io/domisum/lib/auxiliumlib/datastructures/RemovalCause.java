@@ -0,0 +1,29 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+@API
+public enum RemovalCause
+{
+	
+	/**
+	 * The entry was removed by a call to remove or clear.
+	 */
+	EXPLICIT,
+	
+	/**
+	 * The value of the entry was replaced by a put.
+	 */
+	REPLACED,
+	
+	/**
+	 * The entry expired according to the expiration settings of the cache.
+	 */
+	EXPIRED,
+	
+	/**
+	 * The entry was evicted because the cache exceeded its maximum size or weight.
+	 */
+	SIZE
+	
+}
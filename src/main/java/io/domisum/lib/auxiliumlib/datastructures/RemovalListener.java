@@ -0,0 +1,13 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+@API
+@FunctionalInterface
+public interface RemovalListener<KeyT, T>
+{
+	
+	@API
+	void onRemoval(KeyT key, T value, RemovalCause cause);
+	
+}
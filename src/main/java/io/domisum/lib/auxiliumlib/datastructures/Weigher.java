@@ -0,0 +1,13 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+@API
+@FunctionalInterface
+public interface Weigher<KeyT, T>
+{
+	
+	@API
+	int weigh(KeyT key, T value);
+	
+}
@@ -0,0 +1,113 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+/**
+ * W-TinyLFU: new keys enter an LRU admission window. Keys leaving the window are added to the probation segment of
+ * a segmented LRU main space, keys accessed again while in probation are promoted to the protected segment. When the
+ * cache is over capacity, the newest probation key (the candidate) competes with the oldest probation key (the victim)
+ * and the one with the lower estimated frequency is evicted.
+ */
+final class WindowTinyLfuEvictionTracker<KeyT>
+	extends EvictionTracker<KeyT>
+{
+	
+	// CONSTANTS
+	private static final double WINDOW_SHARE = 0.01;
+	private static final double PROTECTED_SHARE_OF_MAIN = 0.8;
+	private static final int INITIAL_SKETCH_CAPACITY = 16;
+	
+	// SETTINGS
+	private final long windowMaximumWeight;
+	private final long protectedMaximumWeight;
+	
+	// STATE
+	private final NodeDeque<KeyT> window = new NodeDeque<>();
+	private final NodeDeque<KeyT> probation = new NodeDeque<>();
+	private final NodeDeque<KeyT> protectedSegment = new NodeDeque<>();
+	private final FrequencySketch sketch;
+	
+	
+	// INIT
+	WindowTinyLfuEvictionTracker(long maximumWeight)
+	{
+		super(maximumWeight);
+		
+		windowMaximumWeight = Math.max(1, (long) (maximumWeight*WINDOW_SHARE));
+		protectedMaximumWeight = (long) ((maximumWeight-windowMaximumWeight)*PROTECTED_SHARE_OF_MAIN);
+		// the maximum weight may count bytes rather than keys, so the sketch is sized by the number of tracked keys
+		sketch = new FrequencySketch(INITIAL_SKETCH_CAPACITY);
+	}
+	
+	
+	// POLICY
+	@Override
+	protected void onAdd(Node<KeyT> node)
+	{
+		sketch.ensureCapacity(size());
+		sketch.increment(node.key);
+		window.addLast(node);
+		
+		// spill window overflow into probation, where it will compete against the probation victim
+		while(window.weight > windowMaximumWeight && window.peekFirst() != window.peekLast())
+		{
+			var spilled = window.peekFirst();
+			window.remove(spilled);
+			probation.addLast(spilled);
+		}
+	}
+	
+	@Override
+	protected void onAccess(Node<KeyT> node)
+	{
+		sketch.increment(node.key);
+		
+		if(node.deque == window || node.deque == protectedSegment)
+			node.deque.moveToLast(node);
+		else if(node.deque == probation)
+			promote(node);
+	}
+	
+	@Override
+	protected void onRemove(Node<KeyT> node)
+	{
+		node.deque.remove(node);
+	}
+	
+	@Override
+	protected void onClear()
+	{
+		window.clear();
+		probation.clear();
+		protectedSegment.clear();
+		sketch.clear();
+	}
+	
+	@Override
+	protected Node<KeyT> selectVictim()
+	{
+		if(probation.isEmpty())
+			return protectedSegment.isEmpty() ? window.peekFirst() : protectedSegment.peekFirst();
+		
+		var victim = probation.peekFirst();
+		var candidate = probation.peekLast();
+		if(victim == candidate)
+			return victim;
+		
+		return sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+	}
+	
+	
+	// SEGMENTS
+	private void promote(Node<KeyT> node)
+	{
+		probation.remove(node);
+		protectedSegment.addLast(node);
+		
+		while(protectedSegment.weight > protectedMaximumWeight && protectedSegment.peekFirst() != node)
+		{
+			var demoted = protectedSegment.peekFirst();
+			protectedSegment.remove(demoted);
+			probation.addLast(demoted);
+		}
+	}
+	
+}
@@ -0,0 +1,88 @@
+package io.domisum.lib.auxiliumlib.util;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+@API
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class BufferUtil
+{
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger("bufferUtil");
+	
+	
+	// RELEASE
+	/**
+	 * Frees the memory of a direct or memory mapped buffer right away instead of when the buffer is garbage collected,
+	 * which also unmaps the file of a mapped buffer. The buffer must not be accessed anymore afterwards.
+	 * <p>
+	 * Releasing needs internal JDK API. If it isn't available, nothing happens and the memory is only freed once the
+	 * buffer is garbage collected.
+	 *
+	 * @return whether the buffer was released
+	 */
+	@API
+	public static boolean release(ByteBuffer buffer)
+	{
+		if(!buffer.isDirect() || Cleaner.INVOKE_CLEANER == null)
+			return false;
+		
+		try
+		{
+			Cleaner.INVOKE_CLEANER.invoke(Cleaner.UNSAFE, buffer);
+			return true;
+		}
+		catch(IllegalAccessException|InvocationTargetException e)
+		{
+			// for example for slices and duplicates, which don't own their memory
+			LOGGER.debug("Failed to release buffer, it is freed once garbage collected", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * Looks up the internal API once, so that buffers can be released without reflection lookups.
+	 */
+	private static final class Cleaner
+	{
+		
+		@Nullable
+		private static final Object UNSAFE;
+		@Nullable
+		private static final Method INVOKE_CLEANER;
+		
+		
+		static
+		{
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try
+			{
+				var unsafeClass = Class.forName("sun.misc.Unsafe");
+				var unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+				unsafeField.setAccessible(true);
+				unsafe = unsafeField.get(null);
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			}
+			catch(ReflectiveOperationException|RuntimeException e)
+			{
+				LOGGER.debug("Releasing buffers isn't available, they are freed once garbage collected", e);
+				unsafe = null;
+				invokeCleaner = null;
+			}
+			
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+		
+	}
+	
+}
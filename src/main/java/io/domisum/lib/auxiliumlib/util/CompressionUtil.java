@@ -8,9 +8,14 @@ import org.apache.commons.lang3.Validate;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 @API
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
@@ -87,6 +92,91 @@ public final class CompressionUtil
 	}
 	
 	
+	// STREAMING
+	/**
+	 * Returns a stream which reads the compressed form of the given stream. Compression happens while reading, so the
+	 * data is never held in memory as a whole.
+	 */
+	@API
+	public static InputStream compressingInputStream(InputStream uncompressed, Speed compressionSpeed)
+	{
+		Validate.notNull(uncompressed);
+		Validate.notNull(compressionSpeed);
+		
+		var deflater = new Deflater(compressionSpeed.deflaterLevel);
+		return new DeflaterInputStream(uncompressed, deflater, BUFFER_SIZE)
+		{
+			@Override
+			public void close()
+				throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					deflater.end(); // not ended by the stream itself, since the deflater was passed in
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Returns a stream which compresses all data written to it and writes it to the given stream. Closing the returned
+	 * stream finishes the compressed data and closes the given stream.
+	 */
+	@API
+	public static OutputStream compressingOutputStream(OutputStream compressed, Speed compressionSpeed)
+	{
+		Validate.notNull(compressed);
+		Validate.notNull(compressionSpeed);
+		
+		var deflater = new Deflater(compressionSpeed.deflaterLevel);
+		return new DeflaterOutputStream(compressed, deflater, BUFFER_SIZE)
+		{
+			@Override
+			public void close()
+				throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					deflater.end(); // not ended by the stream itself, since the deflater was passed in
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Returns a stream which reads the decompressed form of the given compressed stream, decompressing while reading.
+	 */
+	@API
+	public static InputStream decompressingInputStream(InputStream compressed)
+	{
+		Validate.notNull(compressed);
+		return new InflaterInputStream(compressed, new Inflater(), BUFFER_SIZE)
+		{
+			@Override
+			public void close()
+				throws IOException
+			{
+				try
+				{
+					super.close();
+				}
+				finally
+				{
+					inf.end(); // not ended by the stream itself, since the inflater was passed in
+				}
+			}
+		};
+	}
+	
+	
 	@API
 	public enum Speed
 	{
@@ -106,6 +196,14 @@ public final class CompressionUtil
 			this.deflaterLevel = deflaterLevel;
 		}
 		
+		
+		// GETTERS
+		@API
+		public int getDeflaterLevel()
+		{
+			return deflaterLevel;
+		}
+		
 	}
 	
 }
@@ -13,19 +13,37 @@ public final class GsonUtil
 	
 	// REFERENCES
 	private static Gson gson = null;
+	private static Gson compactGson = null;
 	
 	
 	@API
 	public static synchronized Gson get()
 	{
 		if(gson == null)
-			gson = new GsonBuilder()
-				.enableComplexMapKeySerialization()
+			gson = createBuilder()
 				.setPrettyPrinting()
-				.serializeNulls()
 				.create();
 		
 		return gson;
 	}
 	
+	/**
+	 * Same settings as {@link #get()}, but without pretty printing, for json which is only read by machines.
+	 */
+	@API
+	public static synchronized Gson getCompact()
+	{
+		if(compactGson == null)
+			compactGson = createBuilder().create();
+		
+		return compactGson;
+	}
+	
+	private static GsonBuilder createBuilder()
+	{
+		return new GsonBuilder()
+			.enableComplexMapKeySerialization()
+			.serializeNulls();
+	}
+	
 }
@@ -0,0 +1,124 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import com.google.common.base.Ticker;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Thread safe queue which hands out elements in the order of their deadline, which is the time they were added plus
+ * their maximum wait. Elements with the same deadline are handed out in the order they were added.
+ */
+final class DeadlineQueue<T>
+	extends AbstractQueue<T>
+{
+	
+	// DEPENDENCIES
+	private final Function<T, Duration> getMaxWait;
+	private final Ticker ticker;
+	
+	// STATE
+	private final PriorityBlockingQueue<Entry<T>> heap = new PriorityBlockingQueue<>();
+	private final AtomicLong sequence = new AtomicLong(0);
+	
+	
+	// INIT
+	DeadlineQueue(Function<T, Duration> getMaxWait)
+	{
+		this(getMaxWait, Ticker.systemTicker());
+	}
+	
+	DeadlineQueue(Function<T, Duration> getMaxWait, Ticker ticker)
+	{
+		this.getMaxWait = getMaxWait;
+		this.ticker = ticker;
+	}
+	
+	
+	// QUEUE
+	@Override
+	public boolean offer(T element)
+	{
+		long deadlineNanos = ticker.read()+getMaxWait.apply(element).toNanos();
+		return heap.offer(new Entry<>(element, deadlineNanos, sequence.getAndIncrement()));
+	}
+	
+	@Override
+	public T poll()
+	{
+		var entry = heap.poll();
+		return entry == null ? null : entry.element;
+	}
+	
+	@Override
+	public T peek()
+	{
+		var entry = heap.peek();
+		return entry == null ? null : entry.element;
+	}
+	
+	@Override
+	public int size()
+	{
+		return heap.size();
+	}
+	
+	@Override
+	public Iterator<T> iterator()
+	{
+		var entryIterator = heap.iterator();
+		return new Iterator<>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return entryIterator.hasNext();
+			}
+			
+			@Override
+			public T next()
+			{
+				return entryIterator.next().element;
+			}
+		};
+	}
+	
+	
+	// ENTRY
+	private static class Entry<T>
+		implements Comparable<Entry<T>>
+	{
+		
+		private final T element;
+		private final long deadlineNanos;
+		private final long sequence;
+		
+		
+		// INIT
+		public Entry(T element, long deadlineNanos, long sequence)
+		{
+			this.element = element;
+			this.deadlineNanos = deadlineNanos;
+			this.sequence = sequence;
+		}
+		
+		
+		// COMPARE
+		@Override
+		public int compareTo(Entry<T> other)
+		{
+			// compare the difference, ticker values can overflow
+			int deadlineComparison = Long.signum(deadlineNanos-other.deadlineNanos);
+			if(deadlineComparison != 0)
+				return deadlineComparison;
+			
+			return Long.compare(sequence, other.sequence);
+		}
+		
+	}
+	
+}
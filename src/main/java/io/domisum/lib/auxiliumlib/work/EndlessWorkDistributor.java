@@ -11,7 +11,7 @@ public abstract class EndlessWorkDistributor<T>
 {
 	
 	// STATE
-	private Instant lastUnsuccessfulRefill = Instant.EPOCH;
+	private volatile Instant lastUnsuccessfulRefill = Instant.EPOCH;
 	
 	
 	// CONSTANT METHODS
@@ -19,6 +19,14 @@ public abstract class EndlessWorkDistributor<T>
 	
 	protected abstract Duration EMPTY_REFILL_COOLDOWN_DURATION();
 	
+	/**
+	 * Queue length below which a background refill is started, which then fills the queue up to the target length.
+	 */
+	protected int REFILL_LOW_WATER_MARK()
+	{
+		return Math.max(1, TARGET_QUEUE_LENGTH()/2);
+	}
+	
 	
 	// REFILL
 	@Override
@@ -33,6 +41,12 @@ public abstract class EndlessWorkDistributor<T>
 		return true;
 	}
 	
+	@Override
+	protected boolean shouldStartBackgroundRefill()
+	{
+		return getQueueSize() < REFILL_LOW_WATER_MARK() && shouldRefill();
+	}
+	
 	@Override
 	protected final Collection<T> getMoreWork()
 	{
@@ -1,33 +1,157 @@
 package io.domisum.lib.auxiliumlib.work;
 
 import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.math.RandomUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Distributes work which is inserted from outside. Work which isn't completed successfully is queued again after an
+ * exponentially growing, jittered delay. Once a subject failed {@link #MAX_ATTEMPTS()} times, it is moved to the dead
+ * letters, where it can be inspected and inserted again. With the defaults, a subject is retried for about 50 seconds
+ * before it becomes a dead letter, so short outages don't lose work.
+ * <p>
+ * Dead letters are kept until they are drained, up to {@link #MAX_DEAD_LETTERS()}. Beyond that, the oldest dead letters
+ * are dropped with a warning, so that a distributor nobody drains doesn't grow without bound. Subclasses which must
+ * never drop work can return {@link Integer#MAX_VALUE} from {@link #MAX_ATTEMPTS()}.
+ */
 @API
 public class InsertWorkDistributor<T>
 	extends WorkDistributor<T>
 {
 	
+	private static final Logger LOGGER = LoggerFactory.getLogger(InsertWorkDistributor.class);
+	
+	
+	// CONSTANTS
+	private static final double RETRY_DELAY_JITTER_REL = 0.2;
+	
 	// STATE
-	protected final Queue<T> insertWorkQueue = new LinkedList<>();
+	protected final Queue<T> insertWorkQueue = new ConcurrentLinkedQueue<>();
+	private final Map<T, Integer> failedAttempts = new ConcurrentHashMap<>();
+	private final DelayQueue<DelayedRetry<T>> retryQueue = new DelayQueue<>();
+	private final Queue<T> deadLetters = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger deadLetterCount = new AtomicInteger(0); // size() of the queue isn't constant time
+	
+	
+	// CONSTANT METHODS
+	/**
+	 * The number of failed attempts after which a subject is moved to the dead letters.
+	 */
+	protected int MAX_ATTEMPTS()
+	{
+		return 10;
+	}
+	
+	/**
+	 * The delay before the first retry, doubling with every further failed attempt up to {@link #RETRY_MAX_DELAY()}.
+	 */
+	protected Duration RETRY_BASE_DELAY()
+	{
+		return Duration.ofMillis(100);
+	}
+	
+	protected Duration RETRY_MAX_DELAY()
+	{
+		return Duration.ofMinutes(1);
+	}
+	
+	/**
+	 * The number of dead letters kept until the oldest ones are dropped.
+	 */
+	protected int MAX_DEAD_LETTERS()
+	{
+		return 10_000;
+	}
 	
 	
 	// INSERT
-	public synchronized void insert(T work)
+	public void insert(T work)
 	{
 		insertWorkQueue.add(work);
 	}
 	
 	@Override
-	protected void onClose(ReservedWork<T> work)
+	protected void onSubjectClosed(T subject, boolean successful)
+	{
+		super.onSubjectClosed(subject, successful);
+		if(successful)
+		{
+			failedAttempts.remove(subject);
+			return;
+		}
+		
+		int attempts = failedAttempts.merge(subject, 1, Integer::sum);
+		if(attempts >= MAX_ATTEMPTS())
+		{
+			failedAttempts.remove(subject);
+			LOGGER.warn("Work subject {} failed {} times, moving it to dead letters", subject, attempts);
+			addDeadLetter(subject);
+			return;
+		}
+		
+		retryQueue.add(new DelayedRetry<>(subject, determineRetryDelay(attempts)));
+	}
+	
+	private Duration determineRetryDelay(int attempts)
 	{
-		super.onClose(work);
-		if(!work.isSuccessful())
-			insert(work.getSubject());
+		var delay = RETRY_BASE_DELAY().multipliedBy(1L<<Math.min(attempts-1, 30));
+		if(delay.compareTo(RETRY_MAX_DELAY()) > 0)
+			delay = RETRY_MAX_DELAY();
+		
+		return delay.isZero() ? delay : RandomUtil.distributeRel(delay, RETRY_DELAY_JITTER_REL);
+	}
+	
+	
+	// DEAD LETTERS
+	private void addDeadLetter(T subject)
+	{
+		deadLetters.add(subject);
+		if(deadLetterCount.incrementAndGet() <= MAX_DEAD_LETTERS())
+			return;
+		
+		var dropped = deadLetters.poll();
+		if(dropped != null)
+		{
+			deadLetterCount.decrementAndGet();
+			LOGGER.warn("Too many dead letters, dropping oldest work subject {}", dropped);
+		}
+	}
+	
+	@API
+	public List<T> getDeadLetters()
+	{
+		return new ArrayList<>(deadLetters);
+	}
+	
+	/**
+	 * Removes all dead letters and returns them, for example to inspect and insert them again.
+	 */
+	@API
+	public List<T> drainDeadLetters()
+	{
+		var drained = new ArrayList<T>();
+		T deadLetter;
+		while((deadLetter = deadLetters.poll()) != null)
+		{
+			deadLetterCount.decrementAndGet();
+			drained.add(deadLetter);
+		}
+		
+		return drained;
 	}
 	
 	
@@ -35,15 +159,72 @@ public class InsertWorkDistributor<T>
 	@Override
 	protected boolean shouldRefill()
 	{
-		return insertWorkQueue.size() > 0;
+		if(!insertWorkQueue.isEmpty())
+			return true;
+		
+		var nextRetry = retryQueue.peek();
+		return nextRetry != null && nextRetry.getDelay(TimeUnit.NANOSECONDS) <= 0;
 	}
 	
 	@Override
-	protected synchronized Collection<T> getMoreWork()
+	protected Collection<T> getMoreWork()
 	{
-		var moreWork = new ArrayList<>(insertWorkQueue);
-		insertWorkQueue.clear();
+		var moreWork = new ArrayList<T>();
+		T work;
+		while((work = insertWorkQueue.poll()) != null)
+			moreWork.add(work);
+		
+		DelayedRetry<T> retry;
+		while((retry = retryQueue.poll()) != null)
+			moreWork.add(retry.subject);
+		
 		return moreWork;
 	}
 	
+	/**
+	 * Inserted work which isn't queued yet and retries which aren't due yet count as upcoming work. Dead letters don't.
+	 */
+	@Override
+	protected boolean hasUpcomingWork()
+	{
+		return super.hasUpcomingWork() || !insertWorkQueue.isEmpty() || !retryQueue.isEmpty();
+	}
+	
+	
+	// RETRY
+	private static class DelayedRetry<T>
+		implements Delayed
+	{
+		
+		private final T subject;
+		private final long dueNanos;
+		
+		
+		// INIT
+		public DelayedRetry(T subject, Duration delay)
+		{
+			this.subject = subject;
+			dueNanos = System.nanoTime()+delay.toNanos();
+		}
+		
+		
+		// DELAYED
+		@Override
+		public long getDelay(TimeUnit unit)
+		{
+			return unit.convert(dueNanos-System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		
+		@Override
+		public int compareTo(Delayed other)
+		{
+			// compare the stored due times, reading the clock twice would make the order depend on when it's read
+			if(other instanceof DelayedRetry)
+				return Long.signum(dueNanos-((DelayedRetry<?>) other).dueNanos); // difference, nanoTime can overflow
+			
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+		
+	}
+	
 }
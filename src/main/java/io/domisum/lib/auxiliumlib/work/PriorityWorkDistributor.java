@@ -0,0 +1,34 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+
+import java.time.Duration;
+import java.util.Queue;
+
+/**
+ * Variant of {@link InsertWorkDistributor} which hands out work by deadline instead of in insertion order. The deadline
+ * of a work subject is the time it was queued plus its maximum wait.
+ * <p>
+ * Urgent work gets a short maximum wait and overtakes less urgent work. Since deadlines of waiting work don't move,
+ * less urgent work is eventually handed out before newly queued urgent work, so it can't starve.
+ */
+@API
+public abstract class PriorityWorkDistributor<T>
+	extends InsertWorkDistributor<T>
+{
+	
+	// PRIORITY
+	/**
+	 * Returns how long the subject should wait at most before being handed out, lower values meaning higher priority.
+	 */
+	protected abstract Duration getMaxWait(T subject);
+	
+	
+	// QUEUE
+	@Override
+	protected Queue<T> createQueue()
+	{
+		return new DeadlineQueue<>(this::getMaxWait);
+	}
+	
+}
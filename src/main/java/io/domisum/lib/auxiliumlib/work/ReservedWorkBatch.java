@@ -0,0 +1,95 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Reservation of several work subjects at once. Each subject is marked as successful on its own, closing the batch
+ * closes the reservations of all subjects.
+ */
+@API
+public final class ReservedWorkBatch<T>
+	implements AutoCloseable
+{
+	
+	private final List<T> subjects;
+	
+	// STATUS
+	private final boolean[] successful;
+	private final Consumer<T> onSubjectSuccessful;
+	
+	@Getter
+	private boolean closed = false;
+	private final BiConsumer<T, Boolean> onSubjectClosed;
+	
+	
+	// INIT
+	ReservedWorkBatch(List<T> subjects, Consumer<T> onSubjectSuccessful, BiConsumer<T, Boolean> onSubjectClosed)
+	{
+		this.subjects = subjects;
+		this.onSubjectSuccessful = onSubjectSuccessful;
+		this.onSubjectClosed = onSubjectClosed;
+		successful = new boolean[subjects.size()];
+	}
+	
+	
+	// SUBJECTS
+	@API
+	public int size()
+	{
+		return subjects.size();
+	}
+	
+	@API
+	public boolean isEmpty()
+	{
+		return subjects.isEmpty();
+	}
+	
+	@API
+	public T getSubject(int index)
+	{
+		return subjects.get(index);
+	}
+	
+	@API
+	public List<T> getSubjects()
+	{
+		return Collections.unmodifiableList(subjects);
+	}
+	
+	
+	// STATUS
+	@API
+	public void successful(int index)
+	{
+		if(successful[index])
+			return;
+		
+		successful[index] = true;
+		onSubjectSuccessful.accept(subjects.get(index));
+	}
+	
+	@API
+	public boolean isSuccessful(int index)
+	{
+		return successful[index];
+	}
+	
+	@Override
+	public void close()
+	{
+		if(closed)
+			return;
+		closed = true;
+		
+		for(int i = 0; i < subjects.size(); i++)
+			onSubjectClosed.accept(subjects.get(i), successful[i]);
+	}
+	
+}
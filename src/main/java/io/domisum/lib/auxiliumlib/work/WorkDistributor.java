@@ -2,18 +2,25 @@ package io.domisum.lib.auxiliumlib.work;
 
 import io.domisum.lib.auxiliumlib.annotations.API;
 import io.domisum.lib.auxiliumlib.contracts.IoConsumer;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import lombok.RequiredArgsConstructor;
 import org.apache.commons.io.function.IOFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -29,34 +36,82 @@ public abstract class WorkDistributor<T>
 	// STATUS
 	private final WorkQueue workQueue = new WorkQueue();
 	private final Lock refillLock = new ReentrantLock();
-	private final Set<T> reservedWorkSubjects = new HashSet<>();
+	private final Set<T> reservedWorkSubjects = ConcurrentHashMap.newKeySet();
+	
+	// BACKGROUND REFILL
+	private final AtomicBoolean backgroundRefillRequested = new AtomicBoolean(false);
+	private final Object backgroundRefillThreadLock = new Object();
+	@Nullable
+	private volatile Thread backgroundRefillThread;
+	private volatile boolean backgroundRefillStopped = false;
+	private volatile int backgroundRefillGeneration = 0;
+	private volatile boolean backgroundRefillRunning = false;
+	
+	
+	// LEGACY HOOKS
+	private static final ClassValue<LegacyHooks> LEGACY_HOOKS = new ClassValue<>()
+	{
+		@Override
+		protected LegacyHooks computeValue(Class<?> type)
+		{
+			return new LegacyHooks(overridesLegacyHook(type, "onSuccess"), overridesLegacyHook(type, "onClose"));
+		}
+	};
+	private final LegacyHooks legacyHooks = LEGACY_HOOKS.get(getClass());
+	
+	
+	// CONSTANT METHODS
+	/**
+	 * If true, refills run on a dedicated background thread instead of on the worker thread which notices that a
+	 * refill is needed, so workers never wait for a refill.
+	 * <p>
+	 * The thread is started with the first background refill and keeps running until {@link #stopBackgroundRefill()} is
+	 * called, stopping a {@link WorkerPool} doesn't stop it. Call {@link #stopBackgroundRefill()} once the distributor
+	 * isn't used anymore, otherwise the thread is leaked.
+	 */
+	protected boolean REFILL_IN_BACKGROUND()
+	{
+		return false;
+	}
 	
 	
 	// GET
 	@API
 	public Optional<ReservedWork<T>> getWorkOptional()
 	{
-		if(shouldRefill())
-			if(refillLock.tryLock())
-				try
-				{
-					refill();
-				}
-				finally
-				{
-					refillLock.unlock();
-				}
+		refillIfNeeded();
 		
-		var workSubjectOptional = workQueue.poll();
-		if(workSubjectOptional.isEmpty())
+		var workSubject = workQueue.pollAndReserve();
+		if(workSubject == null)
 			return Optional.empty();
-		var workSubject = workSubjectOptional.get();
 		
-		reservedWorkSubjects.add(workSubject);
 		var reservedWork = ReservedWork.ofOnSuccessfulOnClose(workSubject, this::onSuccess, this::onClose);
 		return Optional.of(reservedWork);
 	}
 	
+	/**
+	 * Reserves up to the given number of work subjects at once, which is cheaper than reserving them one by one. The
+	 * returned batch is empty if there is no work.
+	 */
+	@API
+	public ReservedWorkBatch<T> getWork(int maxItems)
+	{
+		if(maxItems < 1)
+			throw new IllegalArgumentException("maxItems has to be at least 1, but was "+maxItems);
+		refillIfNeeded();
+		
+		var subjects = new ArrayList<T>(Math.min(maxItems, Math.max(1, getQueueSize())));
+		while(subjects.size() < maxItems)
+		{
+			var workSubject = workQueue.pollAndReserve();
+			if(workSubject == null)
+				break;
+			subjects.add(workSubject);
+		}
+		
+		return new ReservedWorkBatch<>(subjects, this::onBatchSubjectSuccess, this::onBatchSubjectClosed);
+	}
+	
 	
 	// WORK
 	@API
@@ -117,34 +172,294 @@ public abstract class WorkDistributor<T>
 	
 	
 	// RESERVED WORK
+	/**
+	 * @deprecated override {@link #onSubjectSuccess(Object)} instead, which is also called for batch reservations
+	 */
+	@Deprecated
 	protected void onSuccess(ReservedWork<T> work)
 	{
-		// nothing in base impl
+		onSubjectSuccess(work.getSubject());
 	}
 	
+	/**
+	 * @deprecated override {@link #onSubjectClosed(Object, boolean)} instead, which is also called for batch
+	 * reservations
+	 */
+	@Deprecated
 	protected void onClose(ReservedWork<T> work)
 	{
-		reservedWorkSubjects.remove(work.getSubject());
+		onSubjectClosed(work.getSubject(), work.isSuccessful());
+	}
+	
+	private void onBatchSubjectSuccess(T subject)
+	{
+		if(!legacyHooks.overridesOnSuccess)
+		{
+			onSubjectSuccess(subject);
+			return;
+		}
+		
+		// subclasses still overriding the deprecated hook see batch reservations as well
+		var work = ReservedWork.of(subject);
+		work.successful();
+		onSuccess(work);
+	}
+	
+	private void onBatchSubjectClosed(T subject, boolean successful)
+	{
+		if(!legacyHooks.overridesOnClose)
+		{
+			onSubjectClosed(subject, successful);
+			return;
+		}
+		
+		var work = ReservedWork.of(subject);
+		if(successful)
+			work.successful();
+		work.close();
+		onClose(work);
+	}
+	
+	protected void onSubjectSuccess(T subject)
+	{
+		// nothing in base impl
+	}
+	
+	/**
+	 * Called when the reservation of a subject is closed, both for single reservations and for batches.
+	 */
+	protected void onSubjectClosed(T subject, boolean successful)
+	{
+		reservedWorkSubjects.remove(subject);
+	}
+	
+	
+	private static boolean overridesLegacyHook(Class<?> type, String methodName)
+	{
+		for(Class<?> c = type; c != WorkDistributor.class; c = c.getSuperclass())
+			try
+			{
+				c.getDeclaredMethod(methodName, ReservedWork.class);
+				return true;
+			}
+			catch(NoSuchMethodException ignored)
+			{
+				// look further up
+			}
+		
+		return false;
+	}
+	
+	@RequiredArgsConstructor
+	private static class LegacyHooks
+	{
+		
+		private final boolean overridesOnSuccess;
+		private final boolean overridesOnClose;
+		
 	}
 	
 	
 	// REFILL
 	protected abstract boolean shouldRefill();
 	
-	protected void refill()
+	/**
+	 * Whether a background refill should be started. Can be overridden to only start refilling once the queue drops
+	 * below a low-water mark, while {@link #shouldRefill()} decides how far the background refill fills the queue.
+	 */
+	protected boolean shouldStartBackgroundRefill()
 	{
-		var moreWork = getMoreWork();
-		for(T w : moreWork)
+		return shouldRefill();
+	}
+	
+	private void refillIfNeeded()
+	{
+		if(REFILL_IN_BACKGROUND() && !backgroundRefillStopped)
+		{
+			if(shouldStartBackgroundRefill())
+				requestBackgroundRefill();
+			return;
+		}
+		
+		if(shouldRefill())
+			if(refillLock.tryLock())
+				try
+				{
+					refill();
+				}
+				finally
+				{
+					refillLock.unlock();
+				}
+	}
+	
+	private void requestBackgroundRefill()
+	{
+		if(!backgroundRefillRequested.compareAndSet(false, true))
+			return;
+		
+		var thread = getOrStartBackgroundRefillThread();
+		if(thread == null) // stopped in the meantime
+			backgroundRefillRequested.set(false);
+		else
+			LockSupport.unpark(thread);
+	}
+	
+	@Nullable
+	private Thread getOrStartBackgroundRefillThread()
+	{
+		var thread = backgroundRefillThread;
+		if(thread != null)
+			return thread;
+		
+		synchronized(backgroundRefillThreadLock)
 		{
-			if(reservedWorkSubjects.contains(w))
-				continue;
+			if(backgroundRefillStopped)
+				return null;
 			
-			workQueue.insertIfNotContained(w);
+			if(backgroundRefillThread == null)
+			{
+				int generation = backgroundRefillGeneration;
+				backgroundRefillThread = ThreadUtil.createAndStartDaemonThread(()->runBackgroundRefill(generation),
+					getClass().getSimpleName()+"-refill");
+			}
+			return backgroundRefillThread;
+		}
+	}
+	
+	private void runBackgroundRefill(int generation)
+	{
+		try
+		{
+			while(isBackgroundRefillActive(generation))
+			{
+				while(!backgroundRefillRequested.get() && isBackgroundRefillActive(generation))
+					LockSupport.park(this);
+				if(!isBackgroundRefillActive(generation))
+					return;
+				
+				// marked as running before the request is cleared, so the refill is always either requested or running
+				backgroundRefillRunning = true;
+				backgroundRefillRequested.set(false);
+				try
+				{
+					backgroundRefillOnce(generation);
+				}
+				finally
+				{
+					backgroundRefillRunning = false;
+				}
+			}
+		}
+		catch(Error e)
+		{
+			// forget the dying thread before allowing new requests, so that the next request starts a new thread
+			synchronized(backgroundRefillThreadLock)
+			{
+				if(backgroundRefillThread == Thread.currentThread())
+					backgroundRefillThread = null;
+			}
+			backgroundRefillRequested.set(false);
+			throw e;
+		}
+	}
+	
+	/**
+	 * A thread stays active until the background refill is stopped, even if it is restarted before the thread noticed.
+	 */
+	private boolean isBackgroundRefillActive(int generation)
+	{
+		return !backgroundRefillStopped && backgroundRefillGeneration == generation;
+	}
+	
+	private void backgroundRefillOnce(int generation)
+	{
+		refillLock.lock();
+		try
+		{
+			// keep topping up as long as refills make progress
+			int queueSizeBefore;
+			do
+			{
+				queueSizeBefore = getQueueSize();
+				refill();
+			}
+			while(getQueueSize() > queueSizeBefore && shouldRefill() && isBackgroundRefillActive(generation));
+		}
+		catch(RuntimeException e)
+		{
+			logger.error("Background refill failed", e);
+		}
+		finally
+		{
+			refillLock.unlock();
+		}
+	}
+	
+	/**
+	 * Stops the background refill thread and waits for it to finish. Afterwards, refills run on the worker threads
+	 * again, as if {@link #REFILL_IN_BACKGROUND()} was false, until {@link #restartBackgroundRefill()} is called.
+	 * <p>
+	 * Has to be called once a distributor with background refills isn't used anymore, since nothing else ends the
+	 * refill thread.
+	 */
+	@API
+	public void stopBackgroundRefill()
+	{
+		Thread thread;
+		synchronized(backgroundRefillThreadLock)
+		{
+			backgroundRefillStopped = true;
+			backgroundRefillGeneration++;
+			thread = backgroundRefillThread;
+			backgroundRefillThread = null;
+		}
+		
+		if(thread != null && thread != Thread.currentThread())
+		{
+			LockSupport.unpark(thread);
+			ThreadUtil.join(thread);
 		}
+		
+		// a request the stopped thread didn't get to would keep a restarted refill from ever starting a thread
+		backgroundRefillRequested.set(false);
+	}
+	
+	/**
+	 * Lets refills run in the background again after {@link #stopBackgroundRefill()}. A new background refill thread is
+	 * started with the next refill.
+	 */
+	@API
+	public void restartBackgroundRefill()
+	{
+		synchronized(backgroundRefillThreadLock)
+		{
+			backgroundRefillStopped = false;
+		}
+	}
+	
+	protected void refill()
+	{
+		var moreWork = getMoreWork();
+		for(T w : moreWork)
+			workQueue.insertIfNotContainedOrReserved(w);
 	}
 	
 	protected abstract Collection<T> getMoreWork();
 	
+	/**
+	 * Whether work which isn't queued yet is known to become available later, for example because a background refill
+	 * is running. {@link WorkerPool#drainAndStop()} only stops once the queue is empty and this returns false.
+	 * <p>
+	 * Subclasses which hold work outside of the queue, like inserted or delayed work, have to override this and include
+	 * it, otherwise draining may stop before that work was done.
+	 */
+	protected boolean hasUpcomingWork()
+	{
+		// read in the reverse order of the writes, so that a refill between the reads is seen by one of them
+		return backgroundRefillRequested.get() || backgroundRefillRunning;
+	}
+	
 	
 	// QUEUE
 	protected int getQueueSize()
@@ -152,37 +467,64 @@ public abstract class WorkDistributor<T>
 		return workQueue.size();
 	}
 	
+	/**
+	 * Creates the queue which determines the order in which work subjects are handed out, FIFO by default. Called
+	 * during construction. The queue has to be thread safe, deduplication is handled outside of it.
+	 */
+	protected Queue<T> createQueue()
+	{
+		return new ConcurrentLinkedQueue<>();
+	}
+	
+	/**
+	 * Deduplicating queue which can be used by many threads without locking.
+	 * <p>
+	 * A subject is marked as queued before it is added to the queue, and reserved before it is unmarked as queued after
+	 * polling. Because insertion checks for a reservation after marking the subject as queued, a subject can never be
+	 * queued while it is reserved.
+	 */
 	private class WorkQueue
 	{
 		
-		private final Queue<T> queue = new LinkedList<>();
-		private final Set<T> set = new HashSet<>();
+		private final Queue<T> queue = createQueue();
+		private final Set<T> queued = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger size = new AtomicInteger(0);
 		
 		
 		// QUEUE
-		public synchronized void insertIfNotContained(T work)
+		public void insertIfNotContainedOrReserved(T work)
 		{
-			if(set.contains(work))
+			if(!queued.add(work))
+				return;
+			
+			if(reservedWorkSubjects.contains(work))
+			{
+				queued.remove(work);
 				return;
+			}
 			
+			size.incrementAndGet();
 			queue.add(work);
-			set.add(work);
 		}
 		
-		public synchronized Optional<T> poll()
+		@Nullable
+		public T pollAndReserve()
 		{
 			var work = queue.poll();
-			if(work != null)
-				set.remove(work);
+			if(work == null)
+				return null;
 			
-			return Optional.ofNullable(work);
+			size.decrementAndGet();
+			reservedWorkSubjects.add(work);
+			queued.remove(work);
+			return work;
 		}
 		
 		
 		// GETTERS
 		public int size()
 		{
-			return set.size();
+			return size.get();
 		}
 		
 	}
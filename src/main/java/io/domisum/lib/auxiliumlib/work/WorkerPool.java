@@ -0,0 +1,226 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.annotations.API;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import io.domisum.lib.auxiliumlib.util.ValidationUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Runs the work of a {@link WorkDistributor} on a number of workers.
+ * <p>
+ * Workers which find no work wait before trying again, starting with a short wait which doubles every time no work is
+ * found, up to a maximum. Finding work resets the wait, so idle pools poll rarely while busy pools react immediately.
+ * Workers which fail with an exception back off the same way, so that a broken work action doesn't spin.
+ */
+@API
+public final class WorkerPool<T>
+{
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger(WorkerPool.class);
+	
+	
+	// CONSTANTS
+	private static final long MIN_IDLE_WAIT_NANOS = 1_000_000L;
+	private static final long MAX_IDLE_WAIT_NANOS = 1_000_000_000L;
+	
+	// DEPENDENCIES
+	private final WorkDistributor<T> distributor;
+	private final Function<T, Boolean> workAction;
+	
+	// STATE
+	private final CountDownLatch workersFinished;
+	private final Set<Thread> workerThreads = ConcurrentHashMap.newKeySet();
+	private volatile boolean stopping = false;
+	private volatile boolean draining = false;
+	
+	
+	// INIT
+	private WorkerPool(WorkDistributor<T> distributor, Function<T, Boolean> workAction, int numberOfWorkers)
+	{
+		this.distributor = distributor;
+		this.workAction = workAction;
+		workersFinished = new CountDownLatch(numberOfWorkers);
+	}
+	
+	/**
+	 * Starts a pool running the work action on its own threads.
+	 *
+	 * @param workAction returns whether the work was completed successfully
+	 */
+	@API
+	public static <T> WorkerPool<T> start(WorkDistributor<T> distributor, Function<T, Boolean> workAction, int numberOfWorkers, String name)
+	{
+		return start(distributor, workAction, numberOfWorkers, name, null);
+	}
+	
+	/**
+	 * Starts a pool running the work action on the given executor, for example one which runs tasks on virtual threads.
+	 * The executor has to be able to run all workers at the same time, since every worker occupies a task until the
+	 * pool is stopped.
+	 *
+	 * @param workAction returns whether the work was completed successfully
+	 */
+	@API
+	public static <T> WorkerPool<T> start(
+		WorkDistributor<T> distributor, Function<T, Boolean> workAction, int numberOfWorkers, String name, @Nullable Executor executor)
+	{
+		ValidationUtil.notNull(distributor, "distributor");
+		ValidationUtil.notNull(workAction, "workAction");
+		ValidationUtil.notNull(name, "name");
+		if(numberOfWorkers < 1)
+			throw new IllegalArgumentException("numberOfWorkers has to be at least 1, but was "+numberOfWorkers);
+		
+		var pool = new WorkerPool<>(distributor, workAction, numberOfWorkers);
+		for(int i = 0; i < numberOfWorkers; i++)
+		{
+			String workerName = name+"-worker-"+(i+1);
+			if(executor == null)
+				ThreadUtil.createAndStartThread(pool::runWorker, workerName);
+			else
+				pool.execute(executor, numberOfWorkers-i);
+		}
+		
+		return pool;
+	}
+	
+	private void execute(Executor executor, int workersNotStarted)
+	{
+		try
+		{
+			executor.execute(this::runWorker);
+		}
+		catch(RuntimeException e)
+		{
+			// the workers which weren't started never count down, and the ones which were have to be stopped again
+			for(int i = 0; i < workersNotStarted; i++)
+				workersFinished.countDown();
+			stop();
+			throw e;
+		}
+	}
+	
+	
+	// STOP
+	/**
+	 * Stops all workers once they have finished the work they are currently doing and waits for them to stop. The
+	 * distributor's background refill thread keeps running, see {@link WorkDistributor#stopBackgroundRefill()}.
+	 */
+	@API
+	public void stop()
+	{
+		stopping = true;
+		wakeUpWorkers();
+		awaitWorkersFinished();
+	}
+	
+	/**
+	 * Lets all workers continue until there is no more work, then stops them and waits for them to stop. Work which is
+	 * known to become available later, like pending retries, counts as more work. Since retries are bounded by
+	 * {@link InsertWorkDistributor#MAX_ATTEMPTS()}, use {@link #drainAndStop(Duration)} when that is raised a lot.
+	 */
+	@API
+	public void drainAndStop()
+	{
+		draining = true;
+		wakeUpWorkers();
+		awaitWorkersFinished();
+	}
+	
+	/**
+	 * Like {@link #drainAndStop()}, but stops the workers like {@link #stop()} if there is still work left after the
+	 * given duration, for example because failing work keeps being retried.
+	 *
+	 * @return whether all work was done before stopping
+	 */
+	@API
+	public boolean drainAndStop(Duration maxDrainDuration)
+	{
+		draining = true;
+		wakeUpWorkers();
+		if(awaitWorkersFinished(maxDrainDuration))
+			return true;
+		
+		stop();
+		return false;
+	}
+	
+	private void wakeUpWorkers()
+	{
+		workerThreads.forEach(LockSupport::unpark);
+	}
+	
+	private void awaitWorkersFinished()
+	{
+		try
+		{
+			workersFinished.await();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private boolean awaitWorkersFinished(Duration maxWait)
+	{
+		try
+		{
+			return workersFinished.await(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	
+	// WORKER
+	private void runWorker()
+	{
+		workerThreads.add(Thread.currentThread());
+		try
+		{
+			long idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+			while(!stopping)
+			{
+				try
+				{
+					var effort = distributor.work(workAction);
+					if(effort == Effort.SOME)
+					{
+						idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+						continue;
+					}
+					
+					if(draining && !distributor.hasUpcomingWork())
+						return;
+				}
+				catch(RuntimeException e)
+				{
+					LOGGER.error("Exception while working on work from {}", distributor.getClass().getSimpleName(), e);
+				}
+				
+				LockSupport.parkNanos(this, idleWaitNanos); // woken up early when stopping
+				idleWaitNanos = Math.min(idleWaitNanos*2, MAX_IDLE_WAIT_NANOS);
+			}
+		}
+		finally
+		{
+			workerThreads.remove(Thread.currentThread());
+			workersFinished.countDown();
+		}
+	}
+	
+}
@@ -0,0 +1,110 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes;
+
+import io.domisum.lib.auxiliumlib.contracts.serdes.json.GsonStreamingSerdes;
+import io.domisum.lib.auxiliumlib.util.CompressionUtil.Speed;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CompressingInputStreamSerdesTest
+{
+	
+	private final CompressingInputStreamSerdes<String> serdes = new CompressingInputStreamSerdes<>(
+		new GsonStreamingSerdes<>(String.class), Speed.FAST);
+	
+	
+	// TESTS: SERDES
+	@Test
+	public void testRoundTrip()
+		throws IOException
+	{
+		String value = "compressible ".repeat(1000);
+		byte[] serialized = serialize(value);
+		
+		Assertions.assertTrue(serialized.length < value.length());
+		Assertions.assertEquals(value, serdes.deserializeFromInputStream(new ByteArrayInputStream(serialized)));
+	}
+	
+	@Test
+	public void testDoesNotCloseCallersStream()
+		throws IOException
+	{
+		var closeTracking = new CloseTrackingInputStream(new ByteArrayInputStream(serialize("value")));
+		
+		Assertions.assertEquals("value", serdes.deserializeFromInputStream(closeTracking));
+		Assertions.assertFalse(closeTracking.closed);
+	}
+	
+	
+	// TESTS: HEADER
+	@Test
+	public void testHeaderIsWrittenFirst()
+		throws IOException
+	{
+		byte[] serialized = serialize("value");
+		byte[] expectedHeader = CompressionHeader.create(Speed.FAST);
+		
+		for(int i = 0; i < CompressionHeader.SIZE_BYTES; i++)
+			Assertions.assertEquals(expectedHeader[i], serialized[i]);
+		Assertions.assertEquals(Speed.FAST.getDeflaterLevel(), serialized[3]);
+	}
+	
+	@Test
+	public void testMissingHeaderFails()
+	{
+		Assertions.assertThrows(IOException.class, ()->serdes.deserializeFromInputStream(new ByteArrayInputStream(new byte[] {1, 2})));
+		Assertions.assertThrows(IOException.class, ()->serdes.deserializeFromInputStream(new ByteArrayInputStream(new byte[] {1, 2, 1, 5, 0})));
+	}
+	
+	@Test
+	public void testUnknownCodecFails()
+		throws IOException
+	{
+		byte[] serialized = serialize("value");
+		serialized[2] = 99;
+		
+		var exception = Assertions.assertThrows(IOException.class, ()->serdes.deserializeFromInputStream(new ByteArrayInputStream(serialized)));
+		Assertions.assertTrue(exception.getMessage().contains("codec"));
+	}
+	
+	
+	// UTIL
+	private byte[] serialize(String value)
+		throws IOException
+	{
+		try(var stream = serdes.serializeToInputStream(value))
+		{
+			return stream.readAllBytes();
+		}
+	}
+	
+	private static class CloseTrackingInputStream
+		extends FilterInputStream
+	{
+		
+		private boolean closed = false;
+		
+		
+		// INIT
+		public CloseTrackingInputStream(InputStream in)
+		{
+			super(in);
+		}
+		
+		
+		// STREAM
+		@Override
+		public void close()
+			throws IOException
+		{
+			closed = true;
+			super.close();
+		}
+		
+	}
+	
+}
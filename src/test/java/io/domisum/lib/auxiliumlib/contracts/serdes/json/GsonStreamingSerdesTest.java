@@ -0,0 +1,132 @@
+package io.domisum.lib.auxiliumlib.contracts.serdes.json;
+
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class GsonStreamingSerdesTest
+{
+	
+	private final GsonStreamingSerdes<Element> serdes = new GsonStreamingSerdes<>(Element.class);
+	
+	
+	@Test
+	public void testRoundTrip()
+		throws IOException
+	{
+		var element = new Element("name", List.of(1, 2, 3));
+		try(var stream = serdes.serializeToInputStream(element))
+		{
+			Assertions.assertEquals(element, serdes.deserializeFromInputStream(stream));
+		}
+	}
+	
+	@Test
+	public void testOpenStreamsDoNotShareBuffer()
+		throws IOException
+	{
+		var first = new Element("first", List.of(1));
+		var second = new Element("second", List.of(2));
+		try(var firstStream = serdes.serializeToInputStream(first);
+		    var secondStream = serdes.serializeToInputStream(second))
+		{
+			Assertions.assertEquals(second, serdes.deserializeFromInputStream(secondStream));
+			Assertions.assertEquals(first, serdes.deserializeFromInputStream(firstStream));
+		}
+	}
+	
+	@Test
+	public void testClosedStreamDoesNotSeeReusedBuffer()
+		throws IOException
+	{
+		var stream = serdes.serializeToInputStream(new Element("first", List.of(1)));
+		stream.close();
+		
+		var second = new Element("second", List.of(2));
+		try(var secondStream = serdes.serializeToInputStream(second))
+		{
+			Assertions.assertEquals(-1, stream.read());
+			Assertions.assertEquals(second, serdes.deserializeFromInputStream(secondStream));
+		}
+	}
+	
+	@Test
+	public void testStreamClosedByOtherThread()
+		throws Exception
+	{
+		var stream = serdes.serializeToInputStream(new Element("first", List.of(1)));
+		var closer = ThreadUtil.createAndStartThread(()->
+		{
+			try
+			{
+				stream.close();
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}, "closer");
+		closer.join();
+		
+		var second = new Element("second", List.of(2));
+		try(var secondStream = serdes.serializeToInputStream(second))
+		{
+			Assertions.assertEquals(-1, stream.read());
+			Assertions.assertEquals(second, serdes.deserializeFromInputStream(secondStream));
+		}
+	}
+	
+	@Test
+	public void testLongNonAsciiTextRoundTrip()
+		throws IOException
+	{
+		// the multi byte chars and surrogate pairs cross the boundaries of the encoding buffers
+		var element = new Element("ä\uD83D\uDE00x".repeat(5000), List.of(1));
+		var output = new ByteArrayOutputStream();
+		serdes.serializeToOutputStream(element, output);
+		
+		Assertions.assertEquals(element, serdes.deserializeFromInputStream(new ByteArrayInputStream(output.toByteArray())));
+		Assertions.assertTrue(output.toString(StandardCharsets.UTF_8).contains("ä\uD83D\uDE00x"));
+	}
+	
+	
+	// ELEMENT
+	private static class Element
+	{
+		
+		private final String name;
+		private final List<Integer> values;
+		
+		
+		public Element(String name, List<Integer> values)
+		{
+			this.name = name;
+			this.values = values;
+		}
+		
+		
+		@Override
+		public boolean equals(Object other)
+		{
+			if(!(other instanceof Element))
+				return false;
+			var otherElement = (Element) other;
+			return name.equals(otherElement.name) && values.equals(otherElement.values);
+		}
+		
+		@Override
+		public int hashCode()
+		{
+			return name.hashCode();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,151 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.source.io.AsyncIoSource;
+import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class AsyncIoSource_CacheInMemoryTest
+{
+	
+	// TESTS
+	@Test
+	public void testLoadedValueIsCached()
+	{
+		var backingSource = new ManualSource();
+		var source = new TestCache(backingSource);
+		
+		var first = source.getAsync("a");
+		backingSource.lookups.get(0).complete("A");
+		Assertions.assertEquals("A", first.join());
+		
+		Assertions.assertEquals("A", source.getAsync("a").join());
+		Assertions.assertEquals(1, backingSource.lookups.size());
+	}
+	
+	@Test
+	public void testConcurrentLookupsShareInFlightLookup()
+	{
+		var backingSource = new ManualSource();
+		var source = new TestCache(backingSource);
+		
+		var first = source.getAsync("a");
+		var second = source.getAsync("a");
+		Assertions.assertEquals(1, backingSource.lookups.size());
+		
+		second.complete("overwritten by caller");
+		backingSource.lookups.get(0).complete("A");
+		Assertions.assertEquals("A", first.join());
+	}
+	
+	@Test
+	public void testFailedLookupIsNotCached()
+	{
+		var backingSource = new ManualSource();
+		var source = new TestCache(backingSource);
+		
+		var failed = source.getAsync("a");
+		backingSource.lookups.get(0).completeExceptionally(new IOException("expected test exception"));
+		Assertions.assertTrue(failed.isCompletedExceptionally());
+		
+		var retried = source.getAsync("a");
+		Assertions.assertEquals(2, backingSource.lookups.size());
+		backingSource.lookups.get(1).complete("A");
+		Assertions.assertEquals("A", retried.join());
+	}
+	
+	@Test
+	public void testThrowingBackingSourceCompletesExceptionally()
+	{
+		var source = new TestCache(k->
+		{
+			throw new IllegalStateException("expected test exception");
+		});
+		
+		Assertions.assertTrue(source.getAsync("a").isCompletedExceptionally());
+		Assertions.assertTrue(source.getAsync("a").isCompletedExceptionally());
+	}
+	
+	@Test
+	public void testBackingLookupCountsOneMiss()
+	{
+		var backingSource = new ManualSource();
+		var source = new StatsTestCache(backingSource);
+		
+		var first = source.getAsync("a");
+		backingSource.lookups.get(0).complete("A");
+		Assertions.assertEquals("A", first.join());
+		Assertions.assertEquals("A", source.getAsync("a").join());
+		
+		var stats = source.getCacheStats();
+		Assertions.assertEquals(1, stats.getMissCount());
+		Assertions.assertEquals(1, stats.getHitCount());
+	}
+	
+	
+	// SOURCES
+	private static class ManualSource
+		implements AsyncIoSource<String, String>
+	{
+		
+		private final List<CompletableFuture<String>> lookups = new ArrayList<>();
+		
+		
+		// SOURCE
+		@Override
+		public CompletableFuture<String> getAsync(String key)
+		{
+			var lookup = new CompletableFuture<String>();
+			lookups.add(lookup);
+			return lookup;
+		}
+		
+	}
+	
+	private static class TestCache
+		extends AsyncIoSource_CacheInMemory<String, String>
+	{
+		
+		// INIT
+		public TestCache(AsyncIoSource<String, String> backingSource)
+		{
+			super(backingSource);
+		}
+		
+		
+		// CACHE
+		@Override
+		protected ExpirationSettings EXPIRATION_SETTINGS()
+		{
+			return ExpirationSettings.after(Duration.ofHours(1));
+		}
+		
+	}
+	
+	private static class StatsTestCache
+		extends TestCache
+	{
+		
+		// INIT
+		public StatsTestCache(AsyncIoSource<String, String> backingSource)
+		{
+			super(backingSource);
+		}
+		
+		
+		// CACHE
+		@Override
+		protected boolean RECORD_STATS()
+		{
+			return true;
+		}
+		
+	}
+	
+}
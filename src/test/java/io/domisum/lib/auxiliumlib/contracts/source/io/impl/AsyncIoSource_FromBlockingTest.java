@@ -0,0 +1,121 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncIoSource_FromBlockingTest
+{
+	
+	// TESTS
+	@Test
+	public void testLookupRunsOnPool()
+		throws Exception
+	{
+		try(var source = AsyncIoSource_FromBlocking.<String, String>withThreadPool(k->Thread.currentThread().getName(), 1, 10, "lookup"))
+		{
+			Assertions.assertEquals("lookup-1", source.getAsync("a").get(5, TimeUnit.SECONDS));
+		}
+	}
+	
+	@Test
+	public void testFailedLookupCompletesExceptionally()
+	{
+		var failure = new IOException("expected test exception");
+		var source = new AsyncIoSource_FromBlocking<String, String>(k->
+		{
+			throw failure;
+		}, Runnable::run);
+		
+		var thrown = Assertions.assertThrows(ExecutionException.class, ()->source.getAsync("a").get());
+		Assertions.assertSame(failure, thrown.getCause());
+	}
+	
+	@Test
+	public void testRejectedLookupCompletesExceptionally()
+	{
+		var source = new AsyncIoSource_FromBlocking<String, String>(k->k, r->
+		{
+			throw new RejectedExecutionException("expected test rejection");
+		});
+		
+		var thrown = Assertions.assertThrows(ExecutionException.class, ()->source.getAsync("a").get());
+		Assertions.assertTrue(thrown.getCause() instanceof IOException);
+		Assertions.assertTrue(thrown.getCause().getCause() instanceof RejectedExecutionException);
+	}
+	
+	@Test
+	public void testLookupsBeyondQueueFail()
+		throws Exception
+	{
+		var unblocked = new CountDownLatch(1);
+		IoSource<String, String> blockingSource = k->
+		{
+			try
+			{
+				unblocked.await();
+			}
+			catch(InterruptedException e)
+			{
+				throw new IOException("interrupted", e);
+			}
+			return k;
+		};
+		
+		try(var source = AsyncIoSource_FromBlocking.withThreadPool(blockingSource, 1, 1, "lookup"))
+		{
+			var running = source.getAsync("a");
+			var queued = source.getAsync("b");
+			var rejected = source.getAsync("c");
+			Assertions.assertTrue(rejected.isCompletedExceptionally());
+			
+			unblocked.countDown();
+			Assertions.assertEquals("a", running.get(5, TimeUnit.SECONDS));
+			Assertions.assertEquals("b", queued.get(5, TimeUnit.SECONDS));
+		}
+	}
+	
+	@Test
+	public void testLookupsAfterCloseFail()
+	{
+		var source = AsyncIoSource_FromBlocking.<String, String>withThreadPool(k->k, 1, 10, "lookup");
+		source.close();
+		
+		Assertions.assertTrue(source.getAsync("a").isCompletedExceptionally());
+	}
+	
+	@Test
+	public void testBlockingAdapterRethrowsCause()
+	{
+		var failure = new IOException("expected test exception");
+		var asyncSource = new AsyncIoSource_FromBlocking<String, String>(k->
+		{
+			throw failure;
+		}, Runnable::run);
+		var source = new IoSource_FromAsync<>(asyncSource);
+		
+		var thrown = Assertions.assertThrows(IOException.class, ()->source.get("a"));
+		Assertions.assertSame(failure, thrown);
+	}
+	
+	@Test
+	public void testBlockingAdapterWrapsCancellation()
+	{
+		var source = new IoSource_FromAsync<String, String>(k->
+		{
+			var future = new CompletableFuture<String>();
+			future.cancel(false);
+			return future;
+		});
+		
+		Assertions.assertThrows(IOException.class, ()->source.get("a"));
+	}
+	
+}
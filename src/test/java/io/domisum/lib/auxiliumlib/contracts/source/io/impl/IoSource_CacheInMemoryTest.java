@@ -0,0 +1,112 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IoSource_CacheInMemoryTest
+{
+	
+	// TESTS
+	@Test
+	public void testFailingKeyDoesNotFailNeighboursInBatch()
+		throws IOException
+	{
+		var backingSource = new FailingKeySource();
+		var source = new TestCache(backingSource);
+		
+		var thrown = Assertions.assertThrows(IOException.class, ()->source.getAll(List.of("a", "fail", "b")));
+		Assertions.assertEquals("backend can't load fail", thrown.getCause().getMessage());
+		
+		backingSource.loadedKeys.clear();
+		Assertions.assertEquals(Map.of("a", "A", "b", "B"), source.getAll(List.of("a", "b")));
+		Assertions.assertEquals("C", source.get("c"));
+		Assertions.assertEquals(List.of("c"), backingSource.loadedKeys);
+	}
+	
+	@Test
+	public void testRecentlyFailedKeyIsSkippedInBatch()
+		throws IOException
+	{
+		var backingSource = new FailingKeySource();
+		var source = new TestCache(backingSource);
+		Assertions.assertThrows(IOException.class, ()->source.get("fail"));
+		
+		backingSource.loadedKeys.clear();
+		Assertions.assertThrows(IOException.class, ()->source.getAll(List.of("fail", "a")));
+		Assertions.assertEquals(List.of("a"), backingSource.loadedKeys);
+		Assertions.assertEquals("A", source.get("a"));
+		Assertions.assertEquals(List.of("a"), backingSource.loadedKeys);
+	}
+	
+	
+	// SOURCES
+	private static class FailingKeySource
+		implements IoSource<String, String>
+	{
+		
+		private final List<String> loadedKeys = new ArrayList<>();
+		
+		
+		// SOURCE
+		@Override
+		public String get(String key)
+			throws IOException
+		{
+			loadedKeys.add(key);
+			if(key.equals("fail"))
+				throw new IOException("backend can't load "+key);
+			return key.toUpperCase();
+		}
+		
+		@Override
+		public Map<String, String> getAll(Collection<String> keys)
+			throws IOException
+		{
+			if(keys.contains("fail"))
+				throw new IOException("batch containing fail can't be loaded");
+			
+			var values = new LinkedHashMap<String, String>();
+			for(var key : keys)
+				values.put(key, get(key));
+			return values;
+		}
+		
+	}
+	
+	private static class TestCache
+		extends IoSource_CacheInMemory<String, String>
+	{
+		
+		// INIT
+		public TestCache(IoSource<String, String> backingSource)
+		{
+			super(backingSource);
+		}
+		
+		
+		// CACHE
+		@Override
+		protected ExpirationSettings EXPIRATION_SETTINGS()
+		{
+			return ExpirationSettings.after(Duration.ofHours(1));
+		}
+		
+		@Override
+		protected Duration NEGATIVE_CACHE_DURATION()
+		{
+			return Duration.ofHours(1);
+		}
+		
+	}
+	
+}
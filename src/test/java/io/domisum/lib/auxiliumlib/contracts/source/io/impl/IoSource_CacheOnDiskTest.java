@@ -0,0 +1,248 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.datastructures.ExpirationSettings;
+import io.domisum.lib.auxiliumlib.util.FileUtil;
+import io.domisum.lib.auxiliumlib.util.FileUtil.FileType;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+public class IoSource_CacheOnDiskTest
+{
+	
+	private static final StringSerdes<Integer> INTEGER_SERDES = new StringSerdes<>()
+	{
+		@Override
+		public String serialize(Integer object)
+		{
+			return object.toString();
+		}
+		
+		@Override
+		public Integer deserialize(String objectString)
+		{
+			return Integer.parseInt(objectString);
+		}
+	};
+	
+	
+	@Test
+	public void testValuesSurviveRestart(@TempDir File directory)
+		throws IOException
+	{
+		var backingSource = new CountingSource();
+		new TestCache(backingSource, directory, 1024).get(1);
+		new TestCache(backingSource, directory, 1024).get(2);
+		
+		var cache = new TestCache(backingSource, directory, 1024);
+		Assertions.assertEquals(10, cache.get(1));
+		Assertions.assertEquals(20, cache.get(2));
+		Assertions.assertEquals(List.of(1, 2), backingSource.requestedKeys);
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedValuesAreEvicted(@TempDir File directory)
+		throws IOException
+	{
+		var backingSource = new CountingSource();
+		var cache = new TestCache(backingSource, directory, 5); // every value takes 2 bytes
+		cache.get(1);
+		cache.get(2);
+		cache.get(1);
+		cache.get(3);
+		
+		cache.get(1);
+		cache.get(3);
+		cache.get(2);
+		Assertions.assertEquals(List.of(1, 2, 3, 2), backingSource.requestedKeys);
+	}
+	
+	@Test
+	public void testCorruptValueFileIsTreatedAsMiss(@TempDir File directory)
+		throws IOException
+	{
+		var backingSource = new CountingSource();
+		var cache = new TestCache(backingSource, directory, 1024);
+		cache.get(1);
+		for(var file : FileUtil.listFilesFlat(directory, FileType.FILE))
+			if(file.getName().endsWith(".value"))
+				FileUtil.writeString(file, "not a number");
+		
+		Assertions.assertEquals(10, cache.get(1));
+		Assertions.assertEquals(10, cache.get(1));
+		Assertions.assertEquals(List.of(1, 1), backingSource.requestedKeys);
+	}
+	
+	@Test
+	public void testTornIndexTailIsIgnored(@TempDir File directory)
+		throws IOException
+	{
+		var backingSource = new CountingSource();
+		new TestCache(backingSource, directory, 1024).get(1);
+		try(var stream = new FileOutputStream(new File(directory, "index.log"), true))
+		{
+			stream.write(new byte[] {1, 2, 3});
+		}
+		
+		Assertions.assertEquals(10, new TestCache(backingSource, directory, 1024).get(1));
+		Assertions.assertEquals(List.of(1), backingSource.requestedKeys);
+	}
+	
+	@Test
+	public void testForeignFilesAreNotDeleted(@TempDir File directory)
+	{
+		var foreignFile = new File(directory, "notes.txt");
+		FileUtil.writeString(foreignFile, "keep me");
+		FileUtil.writeRaw(new File(directory, "index.log"), new byte[] {42, 42, 42});
+		
+		new TestCache(new CountingSource(), directory, 1024);
+		Assertions.assertTrue(foreignFile.exists());
+	}
+	
+	@Test
+	public void testExpiredEntriesArePrunedOnCompaction(@TempDir File directory)
+		throws IOException
+	{
+		var backingSource = new CountingSource();
+		try(var cache = new ExpiringTestCache(backingSource, directory))
+		{
+			cache.get(1);
+		}
+		ThreadUtil.sleep(Duration.ofMillis(20));
+		
+		new ExpiringTestCache(backingSource, directory).close();
+		var valueFiles = FileUtil.listFilesFlat(directory, FileType.FILE).stream()
+			.filter(f->f.getName().endsWith(".value"))
+			.collect(Collectors.toList());
+		Assertions.assertEquals(List.of(), valueFiles);
+	}
+	
+	@Test
+	public void testLookupsAfterCloseFail(@TempDir File directory)
+		throws IOException
+	{
+		var cache = new TestCache(new CountingSource(), directory, 1024);
+		cache.get(1);
+		cache.close();
+		
+		Assertions.assertThrows(IllegalStateException.class, ()->cache.get(1));
+		Assertions.assertThrows(IllegalStateException.class, ()->cache.invalidate(1));
+		
+		try(var reopened = new TestCache(new CountingSource(), directory, 1024))
+		{
+			Assertions.assertEquals(10, reopened.get(1));
+		}
+	}
+	
+	@Test
+	public void testValueLoadedWhileClosingIsNotCached(@TempDir File directory)
+	{
+		var cacheReference = new AtomicReference<TestCache>();
+		var cache = new TestCache(key->
+		{
+			cacheReference.get().close();
+			return key*10;
+		}, directory, 1024);
+		cacheReference.set(cache);
+		
+		Assertions.assertThrows(IllegalStateException.class, ()->cache.get(1));
+		Assertions.assertEquals(List.of("index.log"), FileUtil.listFilesFlat(directory, FileType.FILE).stream()
+			.map(File::getName)
+			.collect(Collectors.toList()));
+	}
+	
+	
+	// CACHE
+	private static class TestCache
+		extends IoSource_CacheOnDisk<Integer, Integer>
+	{
+		
+		private final long maxDirectorySizeBytes;
+		
+		
+		public TestCache(IoSource<Integer, Integer> backingSource, File directory, long maxDirectorySizeBytes)
+		{
+			super(backingSource, INTEGER_SERDES, directory);
+			this.maxDirectorySizeBytes = maxDirectorySizeBytes;
+		}
+		
+		
+		@Override
+		protected ExpirationSettings EXPIRATION_SETTINGS()
+		{
+			return null;
+		}
+		
+		@Override
+		protected long MAX_DIRECTORY_SIZE_BYTES()
+		{
+			return maxDirectorySizeBytes;
+		}
+		
+		@Override
+		protected String getKeyId(Integer key)
+		{
+			return key.toString();
+		}
+		
+	}
+	
+	private static class ExpiringTestCache
+		extends IoSource_CacheOnDisk<Integer, Integer>
+	{
+		
+		public ExpiringTestCache(IoSource<Integer, Integer> backingSource, File directory)
+		{
+			super(backingSource, INTEGER_SERDES, directory);
+		}
+		
+		
+		@Override
+		protected ExpirationSettings EXPIRATION_SETTINGS()
+		{
+			return ExpirationSettings.after(Duration.ofMillis(1));
+		}
+		
+		@Override
+		protected long MAX_DIRECTORY_SIZE_BYTES()
+		{
+			return 1024;
+		}
+		
+		@Override
+		protected String getKeyId(Integer key)
+		{
+			return key.toString();
+		}
+		
+	}
+	
+	private static class CountingSource
+		implements IoSource<Integer, Integer>
+	{
+		
+		private final List<Integer> requestedKeys = new ArrayList<>();
+		
+		
+		@Override
+		public Integer get(Integer key)
+		{
+			requestedKeys.add(key);
+			return key*10;
+		}
+		
+	}
+	
+}
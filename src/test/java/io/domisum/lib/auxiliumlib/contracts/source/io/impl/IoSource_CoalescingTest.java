@@ -0,0 +1,206 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.source.io.IoSource;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class IoSource_CoalescingTest
+{
+	
+	private static final Duration LONG_WINDOW = Duration.ofHours(1);
+	
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final BlockingSource backingSource = new BlockingSource();
+	
+	
+	@AfterEach
+	public void tearDown()
+	{
+		backingSource.unblock();
+		executor.shutdownNow();
+	}
+	
+	
+	// TESTS
+	@Test
+	public void testLoneLookupIsLoadedRightAway()
+		throws IOException
+	{
+		var source = IoSource_Coalescing.of(backingSource, LONG_WINDOW, 10);
+		
+		String value = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), ()->source.get("a"));
+		
+		Assertions.assertEquals("A", value);
+		Assertions.assertEquals(List.of(List.of("a")), backingSource.getBatches());
+	}
+	
+	@Test
+	public void testLookupsDuringLoadAreBatched()
+		throws Exception
+	{
+		var source = IoSource_Coalescing.of(backingSource, LONG_WINDOW, 10);
+		var blocked = getAsync(source, "block");
+		awaitCondition(()->backingSource.getBatches().size() == 1);
+		
+		var b1 = getAsync(source, "b");
+		var b2 = getAsync(source, "b");
+		var c = getAsync(source, "c");
+		awaitCondition(()->source.getNumberOfWaitingLookups() == 3);
+		backingSource.unblock();
+		
+		Assertions.assertEquals("BLOCK", blocked.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals("B", b1.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals("B", b2.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals("C", c.get(5, TimeUnit.SECONDS));
+		Assertions.assertEquals(2, backingSource.getBatches().size());
+		Assertions.assertEquals(Set.of("b", "c"), new HashSet<>(backingSource.getBatches().get(1)));
+	}
+	
+	@Test
+	public void testFullBatchIsLoadedWithoutWaiting()
+		throws Exception
+	{
+		var source = IoSource_Coalescing.of(backingSource, LONG_WINDOW, 2);
+		getAsync(source, "block");
+		awaitCondition(()->backingSource.getBatches().size() == 1);
+		
+		var lookups = new ArrayList<Future<String>>();
+		for(var key : List.of("b", "c", "d", "e"))
+			lookups.add(getAsync(source, key));
+		for(var lookup : lookups)
+			lookup.get(5, TimeUnit.SECONDS);
+		
+		var batches = backingSource.getBatches();
+		Assertions.assertEquals(3, batches.size());
+		Assertions.assertEquals(2, batches.get(1).size());
+		Assertions.assertEquals(2, batches.get(2).size());
+	}
+	
+	@Test
+	public void testBatchIsLoadedAfterWindow()
+		throws Exception
+	{
+		var source = IoSource_Coalescing.of(backingSource, Duration.ofMillis(100), 10);
+		var blocked = getAsync(source, "block");
+		awaitCondition(()->backingSource.getBatches().size() == 1);
+		
+		Assertions.assertEquals("B", getAsync(source, "b").get(5, TimeUnit.SECONDS));
+		Assertions.assertFalse(blocked.isDone());
+		Assertions.assertEquals(List.of("b"), backingSource.getBatches().get(1));
+	}
+	
+	@Test
+	public void testFailedBatchFailsEveryLookupWithOwnException()
+		throws Exception
+	{
+		var source = IoSource_Coalescing.of(backingSource, LONG_WINDOW, 2);
+		getAsync(source, "block");
+		awaitCondition(()->backingSource.getBatches().size() == 1);
+		
+		var fail1 = executor.submit(()->source.getCoalesced("fail1").getException());
+		var fail2 = executor.submit(()->source.getCoalesced("fail2").getException());
+		var exception1 = fail1.get(5, TimeUnit.SECONDS);
+		var exception2 = fail2.get(5, TimeUnit.SECONDS);
+		
+		Assertions.assertNotSame(exception1, exception2);
+		Assertions.assertNotNull(exception1.getCause());
+		Assertions.assertSame(exception1.getCause(), exception2.getCause());
+	}
+	
+	
+	// UTIL
+	private Future<String> getAsync(IoSource<String, String> source, String key)
+	{
+		return executor.submit(()->source.get(key));
+	}
+	
+	private static void awaitCondition(BooleanSupplier condition)
+	{
+		long deadline = System.nanoTime()+Duration.ofSeconds(5).toNanos();
+		while(!condition.getAsBoolean())
+		{
+			if(System.nanoTime() > deadline)
+				Assertions.fail("condition not met in time");
+			ThreadUtil.sleep(5);
+		}
+	}
+	
+	private static class BlockingSource
+		implements IoSource<String, String>
+	{
+		
+		private final CountDownLatch unblocked = new CountDownLatch(1);
+		private final List<List<String>> batches = new ArrayList<>();
+		
+		
+		// SOURCE
+		@Override
+		public String get(String key)
+			throws IOException
+		{
+			return getAll(List.of(key)).get(key);
+		}
+		
+		@Override
+		public Map<String, String> getAll(Collection<String> keys)
+			throws IOException
+		{
+			synchronized(batches)
+			{
+				batches.add(new ArrayList<>(keys));
+			}
+			
+			if(keys.contains("block"))
+				try
+				{
+					unblocked.await();
+				}
+				catch(InterruptedException e)
+				{
+					throw new IOException("interrupted while blocked", e);
+				}
+			if(keys.stream().anyMatch(k->k.startsWith("fail")))
+				throw new IOException("expected test exception");
+			
+			var values = new LinkedHashMap<String, String>();
+			for(var key : keys)
+				values.put(key, key.toUpperCase());
+			return values;
+		}
+		
+		
+		// TEST
+		public List<List<String>> getBatches()
+		{
+			synchronized(batches)
+			{
+				return new ArrayList<>(batches);
+			}
+		}
+		
+		public void unblock()
+		{
+			unblocked.countDown();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,82 @@
+package io.domisum.lib.auxiliumlib.contracts.source.io.impl;
+
+import io.domisum.lib.auxiliumlib.datastructures.ManualTicker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+public class NegativeCacheTest
+{
+	
+	private static final Duration BASE_DURATION = Duration.ofSeconds(10);
+	
+	
+	@Test
+	public void testFailureIsRememberedUntilBackoffPassed()
+		throws IOException
+	{
+		var ticker = new ManualTicker();
+		var negativeCache = new NegativeCache<Integer>(BASE_DURATION, ticker);
+		var failure = new IOException("backend down");
+		negativeCache.recordFailure(1, failure);
+		
+		ticker.advance(Duration.ofSeconds(5));
+		var thrown = Assertions.assertThrows(IOException.class, ()->negativeCache.throwIfRecentlyFailed(1));
+		Assertions.assertNotSame(failure, thrown);
+		Assertions.assertSame(failure, thrown.getCause());
+		negativeCache.throwIfRecentlyFailed(2);
+		
+		ticker.advance(Duration.ofSeconds(10));
+		negativeCache.throwIfRecentlyFailed(1);
+	}
+	
+	@Test
+	public void testConsecutiveFailuresBackOffLonger()
+		throws IOException
+	{
+		var ticker = new ManualTicker();
+		var negativeCache = new NegativeCache<Integer>(BASE_DURATION, ticker);
+		negativeCache.recordFailure(1, new IOException("backend down"));
+		negativeCache.recordFailure(1, new IOException("backend down"));
+		
+		ticker.advance(Duration.ofSeconds(15));
+		Assertions.assertThrows(IOException.class, ()->negativeCache.throwIfRecentlyFailed(1));
+		
+		negativeCache.recordSuccess(1);
+		negativeCache.throwIfRecentlyFailed(1);
+	}
+	
+	@Test
+	public void testBackoffSurvivesTickerOverflow()
+		throws IOException
+	{
+		var ticker = new ManualTicker();
+		ticker.advance(Duration.ofNanos(Long.MAX_VALUE-Duration.ofSeconds(1).toNanos()));
+		var negativeCache = new NegativeCache<Integer>(BASE_DURATION, ticker);
+		negativeCache.recordFailure(1, new IOException("backend down"));
+		
+		ticker.advance(Duration.ofSeconds(5));
+		Assertions.assertThrows(IOException.class, ()->negativeCache.throwIfRecentlyFailed(1));
+		
+		ticker.advance(Duration.ofSeconds(10));
+		negativeCache.throwIfRecentlyFailed(1);
+	}
+	
+	@Test
+	public void testOldFailuresOfDistinctKeysAreForgotten()
+	{
+		var ticker = new ManualTicker();
+		var negativeCache = new NegativeCache<Integer>(BASE_DURATION, ticker);
+		for(int i = 0; i < 100; i++)
+			negativeCache.recordFailure(i, new IOException("backend down"));
+		
+		ticker.advance(BASE_DURATION.multipliedBy(100));
+		for(int i = 100; i < 1000; i++)
+			negativeCache.recordFailure(i, new IOException("backend down"));
+		
+		Assertions.assertTrue(negativeCache.size() <= 900);
+	}
+	
+}
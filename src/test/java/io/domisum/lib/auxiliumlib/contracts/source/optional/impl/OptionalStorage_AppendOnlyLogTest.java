@@ -0,0 +1,160 @@
+package io.domisum.lib.auxiliumlib.contracts.source.optional.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import io.domisum.lib.auxiliumlib.util.FileUtil;
+import io.domisum.lib.auxiliumlib.util.FileUtil.FileType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Optional;
+
+public class OptionalStorage_AppendOnlyLogTest
+{
+	
+	private static final StringSerdes<String> IDENTITY_SERDES = new StringSerdes<>()
+	{
+		@Override
+		public String serialize(String object)
+		{
+			return object;
+		}
+		
+		@Override
+		public String deserialize(String objectString)
+		{
+			return objectString;
+		}
+	};
+	
+	
+	@Test
+	public void testElementsAreReplayedAfterReopen(@TempDir File directory)
+	{
+		try(var storage = open(directory, 1024))
+		{
+			storage.store("1", "a");
+			storage.store("2", "b");
+			storage.store("1", "c");
+		}
+		
+		try(var storage = open(directory, 1024))
+		{
+			Assertions.assertEquals(Optional.of("c"), storage.get("1"));
+			Assertions.assertEquals(Optional.of("b"), storage.get("2"));
+			Assertions.assertEquals(Optional.empty(), storage.get("3"));
+		}
+	}
+	
+	@Test
+	public void testTornRecordIsDiscardedAndOverwritten(@TempDir File directory)
+		throws IOException
+	{
+		try(var storage = open(directory, 1024))
+		{
+			storage.store("1", "a");
+			storage.store("2", "b");
+		}
+		
+		// segment header of 8 bytes, then two records of 12 header bytes, 1 key byte and 1 value byte each
+		try(var file = new RandomAccessFile(new File(directory, "0.segment"), "rw"))
+		{
+			file.seek(8+14+13);
+			file.write('x');
+		}
+		
+		try(var storage = open(directory, 1024))
+		{
+			Assertions.assertEquals(Optional.of("a"), storage.get("1"));
+			Assertions.assertEquals(Optional.empty(), storage.get("2"));
+			storage.store("3", "c");
+		}
+		
+		try(var storage = open(directory, 1024))
+		{
+			Assertions.assertEquals(Optional.of("a"), storage.get("1"));
+			Assertions.assertEquals(Optional.of("c"), storage.get("3"));
+		}
+	}
+	
+	@Test
+	public void testStrayFilesAreIgnored(@TempDir File directory)
+		throws IOException
+	{
+		try(var storage = open(directory, 1024))
+		{
+			storage.store("1", "a");
+		}
+		FileUtil.writeString(new File(directory, "backup.segment"), "not a segment");
+		FileUtil.writeString(new File(directory, "99999999999.segment"), "not a segment");
+		
+		try(var storage = open(directory, 1024))
+		{
+			Assertions.assertEquals(Optional.of("a"), storage.get("1"));
+		}
+	}
+	
+	@Test
+	public void testCompactionDeletesMostlyDeadSegments(@TempDir File directory)
+	{
+		try(var storage = open(directory, 128))
+		{
+			for(int round = 0; round < 20; round++)
+				for(int key = 0; key < 3; key++)
+					storage.store("key"+key, "value"+round);
+			int segmentCountBefore = countSegments(directory);
+			
+			storage.compact();
+			Assertions.assertTrue(countSegments(directory) < segmentCountBefore);
+			for(int key = 0; key < 3; key++)
+				Assertions.assertEquals(Optional.of("value19"), storage.get("key"+key));
+		}
+		
+		try(var storage = open(directory, 128))
+		{
+			for(int key = 0; key < 3; key++)
+				Assertions.assertEquals(Optional.of("value19"), storage.get("key"+key));
+		}
+	}
+	
+	@Test
+	public void testReopenWithDifferentSegmentSizeKeepsElements(@TempDir File directory)
+	{
+		try(var storage = open(directory, 128))
+		{
+			for(int key = 0; key < 20; key++)
+				storage.store("key"+key, "value"+key);
+		}
+		
+		try(var storage = open(directory, 4096))
+		{
+			for(int key = 0; key < 20; key++)
+				Assertions.assertEquals(Optional.of("value"+key), storage.get("key"+key));
+			storage.store("key20", "value20");
+		}
+		
+		try(var storage = open(directory, 64))
+		{
+			for(int key = 0; key <= 20; key++)
+				Assertions.assertEquals(Optional.of("value"+key), storage.get("key"+key));
+		}
+	}
+	
+	
+	// UTIL
+	private static OptionalStorage_AppendOnlyLog<String, String> open(File directory, int segmentSizeBytes)
+	{
+		return OptionalStorage_AppendOnlyLog.open(directory, segmentSizeBytes, IDENTITY_SERDES, IDENTITY_SERDES);
+	}
+	
+	private static int countSegments(File directory)
+	{
+		return (int) FileUtil.listFilesFlat(directory, FileType.FILE).stream()
+			.filter(f->f.getName().endsWith(".segment"))
+			.count();
+	}
+	
+}
@@ -0,0 +1,192 @@
+package io.domisum.lib.auxiliumlib.contracts.source.optional.impl;
+
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalKeyedValueStorage;
+import io.domisum.lib.auxiliumlib.contracts.source.optional.OptionalStorage;
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OptionalStorage_WriteBehindTest
+{
+	
+	@Test
+	public void testPendingElementsAreReadableAndWrittenOnClose()
+	{
+		var backingStorage = new MapStorage();
+		var storage = OptionalStorage_WriteBehind.of(backingStorage, 100, Duration.ofHours(1), 100);
+		storage.store(1, "a");
+		storage.store(2, "b");
+		storage.store(1, "c");
+		
+		Assertions.assertEquals(Optional.of("c"), storage.get(1));
+		Assertions.assertTrue(backingStorage.elements.isEmpty());
+		
+		storage.close();
+		Assertions.assertEquals(Map.of(1, "c", 2, "b"), backingStorage.elements);
+		Assertions.assertThrows(IllegalStateException.class, ()->storage.store(3, "d"));
+	}
+	
+	@Test
+	public void testFailingBackendIsRetriedWithBackoff()
+	{
+		var backingStorage = new MapStorage();
+		backingStorage.failing = true;
+		var storage = OptionalStorage_WriteBehind.of(backingStorage, 1, Duration.ofMillis(100), 10);
+		for(int i = 0; i < 10; i++)
+			storage.store(i, "value"+i);
+		
+		// backoff of 100, 200 and 400 ms allows at most a few flushes, each stopping at its first failed batch
+		ThreadUtil.sleep(Duration.ofMillis(500));
+		Assertions.assertTrue(backingStorage.storeCalls.get() <= 5, "calls: "+backingStorage.storeCalls.get());
+		Assertions.assertEquals(10, storage.getPendingCount());
+		
+		backingStorage.failing = false;
+		storage.close();
+		Assertions.assertEquals(10, backingStorage.elements.size());
+	}
+	
+	@Test
+	public void testFlushStopsAtFirstFailedBatch()
+	{
+		var backingStorage = new MapStorage();
+		backingStorage.failing = true;
+		var storage = OptionalStorage_WriteBehind.of(backingStorage, 2, Duration.ofHours(1), 10);
+		for(int i = 0; i < 10; i++)
+			storage.store(i, "value"+i);
+		
+		// the flusher thread may have flushed once already, trying every batch would take 5 calls per flush
+		storage.flush();
+		Assertions.assertTrue(backingStorage.storeCalls.get() <= 2, "calls: "+backingStorage.storeCalls.get());
+		Assertions.assertEquals(10, storage.getPendingCount());
+		
+		backingStorage.failing = false;
+		storage.close();
+		Assertions.assertEquals(10, backingStorage.elements.size());
+	}
+	
+	@Test
+	public void testStoresBlockWhileBufferIsFull()
+		throws InterruptedException
+	{
+		var backingStorage = new MapStorage();
+		backingStorage.blockStores = new CountDownLatch(1);
+		var storage = OptionalStorage_WriteBehind.of(backingStorage, 1, Duration.ofMillis(10), 2);
+		storage.store(1, "a");
+		while(backingStorage.storeCalls.get() == 0)
+			ThreadUtil.sleep(Duration.ofMillis(1));
+		storage.store(2, "b");
+		
+		var blockedStore = ThreadUtil.createAndStartThread(()->storage.store(3, "c"), "blockedStore");
+		blockedStore.join(200);
+		Assertions.assertTrue(blockedStore.isAlive());
+		Assertions.assertEquals(2, storage.getPendingCount());
+		
+		backingStorage.blockStores.countDown();
+		blockedStore.join();
+		storage.close();
+		Assertions.assertEquals(Map.of(1, "a", 2, "b", 3, "c"), backingStorage.elements);
+	}
+	
+	@Test
+	public void testCloseReportsElementsWhichFailedToBeWritten()
+	{
+		var backingStorage = new MapStorage();
+		backingStorage.failing = true;
+		var storage = OptionalStorage_WriteBehind.of(backingStorage, 100, Duration.ofHours(1), 100);
+		storage.store(1, "a");
+		
+		var thrown = Assertions.assertThrows(IllegalStateException.class, storage::close);
+		Assertions.assertEquals("backend down", thrown.getCause().getMessage());
+		Assertions.assertEquals(Optional.of("a"), storage.get(1));
+	}
+	
+	@Test
+	public void testNullElementsAreRejected()
+	{
+		var storage = OptionalStorage_WriteBehind.of(new MapStorage(), 100, Duration.ofHours(1), 100);
+		Assertions.assertThrows(IllegalArgumentException.class, ()->storage.store(1, null));
+		
+		var elements = new HashMap<Integer, String>();
+		elements.put(1, "a");
+		elements.put(2, null);
+		Assertions.assertThrows(IllegalArgumentException.class, ()->storage.storeAll(elements));
+		Assertions.assertEquals(0, storage.getPendingCount());
+		storage.close();
+	}
+	
+	@Test
+	public void testKeyedValueStorageIsBuffered()
+	{
+		var backingStorage = new MapStorage();
+		OptionalKeyedValueStorage<Integer, String> keyedStorage = new OptionalKeyedValueStorage<>()
+		{
+			@Override
+			public Optional<String> get(Integer key)
+			{
+				return backingStorage.get(key);
+			}
+			
+			@Override
+			public void store(String element)
+			{
+				backingStorage.store(element.length(), element);
+			}
+		};
+		var storage = OptionalKeyedValueStorage_WriteBehind.of(keyedStorage, String::length, 100, Duration.ofHours(1), 100);
+		storage.store("a");
+		storage.store("bb");
+		
+		Assertions.assertEquals(Optional.of("bb"), storage.get(2));
+		Assertions.assertTrue(backingStorage.elements.isEmpty());
+		
+		storage.close();
+		Assertions.assertEquals(Map.of(1, "a", 2, "bb"), backingStorage.elements);
+	}
+	
+	
+	// STORAGE
+	private static class MapStorage
+		implements OptionalStorage<Integer, String>
+	{
+		
+		private final Map<Integer, String> elements = new ConcurrentHashMap<>();
+		private final AtomicInteger storeCalls = new AtomicInteger();
+		private volatile boolean failing = false;
+		private volatile CountDownLatch blockStores = new CountDownLatch(0);
+		
+		
+		@Override
+		public Optional<String> get(Integer key)
+		{
+			return Optional.ofNullable(elements.get(key));
+		}
+		
+		@Override
+		public void store(Integer key, String element)
+		{
+			storeCalls.incrementAndGet();
+			try
+			{
+				blockStores.await();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			
+			if(failing)
+				throw new IllegalStateException("backend down");
+			elements.put(key, element);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,368 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+public class LazyCacheTest
+{
+	
+	// TEST: SIZE BOUNDED
+	@Test
+	public void testMaximumSizeIsRespected()
+	{
+		for(var policy : EvictionPolicy.values())
+		{
+			LazyCache<Integer, String> cache = LazyCache.bounded(EvictionSettings.maximumSize(100, policy));
+			for(int i = 0; i < 1000; i++)
+				cache.put(i, "value"+i);
+			
+			Assertions.assertEquals(100, cache.size(), "policy "+policy);
+			Assertions.assertEquals(100, cache.getTotalWeight(), "policy "+policy);
+		}
+	}
+	
+	@Test
+	public void testMaximumWeightIsRespected()
+	{
+		for(var policy : EvictionPolicy.values())
+		{
+			var evictionSettings = EvictionSettings.maximumWeight(1000, (Integer k, String v)->v.length(), policy);
+			LazyCache<Integer, String> cache = LazyCache.bounded(evictionSettings);
+			for(int i = 0; i < 1000; i++)
+				cache.put(i, "x".repeat(1+(i%20)));
+			
+			Assertions.assertTrue(cache.getTotalWeight() <= 1000, "policy "+policy);
+		}
+	}
+	
+	@Test
+	public void testLruEvictsLeastRecentlyUsed()
+	{
+		LazyCache<Integer, String> cache = LazyCache.bounded(EvictionSettings.maximumSize(3, EvictionPolicy.LRU));
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(3, "c");
+		cache.get(1);
+		cache.put(4, "d");
+		
+		Assertions.assertTrue(cache.get(1).isPresent());
+		Assertions.assertTrue(cache.get(2).isEmpty());
+		Assertions.assertTrue(cache.get(3).isPresent());
+		Assertions.assertTrue(cache.get(4).isPresent());
+	}
+	
+	@Test
+	public void testLfuEvictsLeastFrequentlyUsed()
+	{
+		LazyCache<Integer, String> cache = LazyCache.bounded(EvictionSettings.maximumSize(3, EvictionPolicy.LFU));
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(3, "c");
+		for(int i = 0; i < 3; i++)
+		{
+			cache.get(1);
+			cache.get(3);
+		}
+		cache.get(2);
+		cache.get(2);
+		cache.put(4, "d");
+		
+		Assertions.assertTrue(cache.get(1).isPresent());
+		Assertions.assertTrue(cache.get(2).isEmpty());
+		Assertions.assertTrue(cache.get(3).isPresent());
+	}
+	
+	@Test
+	public void testTinyLfuKeepsFrequentlyUsedEntriesUnderScan()
+	{
+		LazyCache<Integer, String> cache = LazyCache.bounded(EvictionSettings.maximumSize(100, EvictionPolicy.W_TINY_LFU));
+		for(int i = 0; i < 50; i++)
+			cache.put(i, "hot"+i);
+		for(int round = 0; round < 5; round++)
+			for(int i = 0; i < 50; i++)
+				cache.get(i);
+		
+		// one-off keys shouldn't be able to flush out the hot keys
+		for(int i = 1000; i < 10_000; i++)
+			cache.put(i, "cold"+i);
+		
+		int hotKeysPresent = 0;
+		for(int i = 0; i < 50; i++)
+			if(cache.get(i).isPresent())
+				hotKeysPresent++;
+		Assertions.assertTrue(hotKeysPresent >= 45, "only "+hotKeysPresent+" hot keys present");
+	}
+	
+	@Test
+	public void testRemoveAndReplaceKeepWeightConsistent()
+	{
+		LazyCache<Integer, String> cache = LazyCache.bounded(EvictionSettings.maximumSize(10));
+		cache.put(1, "a");
+		cache.put(1, "b");
+		cache.put(2, "c");
+		cache.remove(1);
+		
+		Assertions.assertEquals(1, cache.size());
+		Assertions.assertEquals(1, cache.getTotalWeight());
+		Assertions.assertEquals("c", cache.get(2).orElseThrow());
+	}
+	
+	
+	// TEST: LOADING
+	@Test
+	public void testConcurrentLoadsOfSameKeyAreDeduplicated()
+		throws InterruptedException
+	{
+		LazyCache<Integer, String> cache = LazyCache.neverExpire();
+		var numberOfLoads = new AtomicInteger(0);
+		Function<Integer, String> loader = k->
+		{
+			numberOfLoads.incrementAndGet();
+			ThreadUtil.sleep(Duration.ofMillis(100));
+			return "value"+k;
+		};
+		
+		var results = new ConcurrentLinkedQueue<String>();
+		var threads = new ArrayList<Thread>();
+		for(int i = 0; i < 8; i++)
+			threads.add(ThreadUtil.createAndStartThread(()->results.add(cache.get(7, loader)), "loader-"+i));
+		for(var thread : threads)
+			thread.join();
+		
+		Assertions.assertEquals(1, numberOfLoads.get());
+		Assertions.assertEquals(8, results.size());
+		results.forEach(r->Assertions.assertEquals("value7", r));
+	}
+	
+	@Test
+	public void testFailedLoadIsNotCached()
+	{
+		LazyCache<Integer, String> cache = LazyCache.neverExpire();
+		Assertions.assertThrows(IOException.class, ()->cache.getIo(1, k->
+		{
+			throw new IOException("backend down");
+		}));
+		
+		Assertions.assertTrue(cache.get(1).isEmpty());
+		Assertions.assertEquals("a", cache.get(1, k->"a"));
+	}
+	
+	@Test
+	public void testGetAllLoadsOnlyMissesInOneBatch()
+		throws IOException
+	{
+		LazyCache<Integer, String> cache = LazyCache.neverExpire();
+		cache.put(2, "cached2");
+		
+		var batches = new ArrayList<List<Integer>>();
+		var values = cache.getAllIo(List.of(1, 2, 3), keys->
+		{
+			batches.add(new ArrayList<>(keys));
+			var loaded = new HashMap<Integer, String>();
+			keys.forEach(k->loaded.put(k, "loaded"+k));
+			return loaded;
+		});
+		
+		Assertions.assertEquals(List.of(List.of(1, 3)), batches);
+		Assertions.assertEquals(List.of("loaded1", "cached2", "loaded3"), new ArrayList<>(values.values()));
+		Assertions.assertEquals(Map.of(1, "loaded1", 3, "loaded3"), cache.getAll(List.of(1, 3, 4)));
+	}
+	
+	
+	// TEST: EXPIRATION
+	@Test
+	public void testEntriesExpireAfterDuration()
+	{
+		var ticker = new ManualTicker();
+		LazyCache<Integer, String> cache = LazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), null, ticker);
+		cache.put(1, "a");
+		
+		ticker.advance(Duration.ofSeconds(59));
+		Assertions.assertEquals("a", cache.getIfPresent(1));
+		
+		ticker.advance(Duration.ofSeconds(2));
+		Assertions.assertNull(cache.getIfPresent(1));
+	}
+	
+	@Test
+	public void testUnusedEntriesExpire()
+	{
+		var ticker = new ManualTicker();
+		LazyCache<Integer, String> cache = LazyCache.of(ExpirationSettings.unusedAfter(Duration.ofMinutes(1)), null, ticker);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		
+		for(int i = 0; i < 5; i++)
+		{
+			ticker.advance(Duration.ofSeconds(40));
+			Assertions.assertEquals("a", cache.getIfPresent(1));
+		}
+		Assertions.assertNull(cache.getIfPresent(2));
+	}
+	
+	@Test
+	public void testExpiredEntriesAreSweptFromMap()
+	{
+		var ticker = new ManualTicker();
+		LazyCache<Integer, String> cache = LazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), null, ticker);
+		for(int i = 0; i < 1000; i++)
+			cache.put(i, "value"+i);
+		
+		ticker.advance(Duration.ofMinutes(2));
+		for(int i = 0; i < 100; i++)
+			cache.getIfPresent(-1);
+		
+		Assertions.assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void testRefreshAheadServesOldValueWhileReloading()
+		throws IOException
+	{
+		var ticker = new ManualTicker();
+		var expirationSettings = ExpirationSettings.after(Duration.ofMinutes(10)).withRefreshAhead(0.5);
+		LazyCache<Integer, String> cache = LazyCache.of(expirationSettings, null, ticker);
+		cache.setRefreshExecutor(Runnable::run);
+		cache.put(1, "old");
+		
+		ticker.advance(Duration.ofMinutes(6));
+		var refreshedValue = new AtomicReference<>("new");
+		Assertions.assertEquals("old", cache.getIo(1, k->refreshedValue.get()));
+		Assertions.assertEquals("new", cache.getIfPresent(1));
+	}
+	
+	
+	@Test
+	public void testRefreshFailingWithErrorReleasesWaitingLoads()
+		throws InterruptedException
+	{
+		var ticker = new ManualTicker();
+		var expirationSettings = ExpirationSettings.after(Duration.ofMinutes(10)).withRefreshAhead(0.5);
+		LazyCache<Integer, String> cache = LazyCache.of(expirationSettings, null, ticker);
+		var refreshThread = new AtomicReference<Thread>();
+		cache.setRefreshExecutor(r->refreshThread.set(ThreadUtil.createAndStartThread(()->
+		{
+			try
+			{
+				r.run();
+			}
+			catch(Error ignored)
+			{
+				// expected
+			}
+		}, "refresh")));
+		cache.put(1, "old");
+		
+		var refreshStarted = new CountDownLatch(1);
+		var releaseRefresh = new CountDownLatch(1);
+		ticker.advance(Duration.ofMinutes(6));
+		cache.get(1, k->
+		{
+			refreshStarted.countDown();
+			ThreadUtil.createAndStartThread(()->
+			{
+				ThreadUtil.sleep(Duration.ofMillis(100));
+				releaseRefresh.countDown();
+			}, "release");
+			awaitUninterruptibly(releaseRefresh);
+			throw new AssertionError("refresh failed");
+		});
+		refreshStarted.await();
+		
+		ticker.advance(Duration.ofMinutes(5));
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), ()->
+		{
+			try
+			{
+				cache.get(1, k->"new");
+			}
+			catch(AssertionError ignored)
+			{
+				// joined the failed refresh
+			}
+		});
+		refreshThread.get().join();
+		Assertions.assertEquals("new", cache.get(1, k->"new"));
+	}
+	
+	
+	// TEST: STATS
+	@Test
+	public void testStatsAreRecorded()
+	{
+		var ticker = new ManualTicker();
+		LazyCache<Integer, String> cache = LazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), EvictionSettings.maximumSize(2), ticker);
+		cache.enableStats();
+		
+		cache.get(1, k->"a");
+		cache.get(1, k->"a");
+		cache.getIfPresent(2);
+		cache.put(2, "b");
+		cache.put(3, "c");
+		cache.remove(3);
+		
+		var stats = cache.getStats();
+		Assertions.assertEquals(1, stats.getHitCount());
+		Assertions.assertEquals(2, stats.getMissCount());
+		Assertions.assertEquals(1, stats.getLoadSuccessCount());
+		Assertions.assertEquals(1, stats.getRemovalCount(RemovalCause.SIZE));
+		Assertions.assertEquals(1, stats.getRemovalCount(RemovalCause.EXPLICIT));
+		Assertions.assertEquals(1, stats.getSize());
+	}
+	
+	@Test
+	public void testStatsNotEnabledThrows()
+	{
+		LazyCache<Integer, String> cache = LazyCache.neverExpire();
+		Assertions.assertThrows(IllegalStateException.class, cache::getStats);
+	}
+	
+	
+	// TEST: REMOVAL LISTENER
+	@Test
+	public void testRemovalListenerReceivesCauses()
+	{
+		var ticker = new ManualTicker();
+		LazyCache<Integer, String> cache = LazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), EvictionSettings.maximumSize(2), ticker);
+		var removals = new ArrayList<String>();
+		cache.setRemovalListener((k, v, c)->removals.add(k+":"+v+":"+c), Runnable::run);
+		
+		cache.put(1, "a");
+		cache.put(1, "b");
+		cache.put(2, "c");
+		cache.put(3, "d");
+		cache.remove(3);
+		ticker.advance(Duration.ofMinutes(2));
+		cache.getIfPresent(0);
+		
+		Assertions.assertEquals(List.of("1:a:REPLACED", "1:b:SIZE", "3:d:EXPLICIT", "2:c:EXPIRED"), removals);
+	}
+	
+	
+	// UTIL
+	private static void awaitUninterruptibly(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}
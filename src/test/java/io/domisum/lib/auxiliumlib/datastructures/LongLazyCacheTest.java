@@ -0,0 +1,101 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Random;
+
+public class LongLazyCacheTest
+{
+	
+	@Test
+	public void testBehavesLikeMapUnderRandomOperations()
+	{
+		LongLazyCache<String> cache = LongLazyCache.neverExpire();
+		var expected = new HashMap<Long, String>();
+		
+		var random = new Random(42);
+		for(int i = 0; i < 100_000; i++)
+		{
+			// small key range so that probe chains collide and deletions shift entries
+			long key = random.nextInt(2000)*(random.nextBoolean() ? 1L : -1L<<40);
+			if(random.nextInt(3) == 0)
+			{
+				cache.remove(key);
+				expected.remove(key);
+			}
+			else
+			{
+				cache.put(key, "value"+i);
+				expected.put(key, "value"+i);
+			}
+		}
+		
+		Assertions.assertEquals(expected.size(), cache.size());
+		for(var entry : expected.entrySet())
+			Assertions.assertEquals(entry.getValue(), cache.getIfPresent(entry.getKey()));
+	}
+	
+	@Test
+	public void testUnusedEntriesExpire()
+	{
+		var ticker = new ManualTicker();
+		IntLazyCache<String> cache = IntLazyCache.of(ExpirationSettings.unusedAfter(Duration.ofMinutes(1)), ticker);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		
+		for(int i = 0; i < 5; i++)
+		{
+			ticker.advance(Duration.ofSeconds(40));
+			Assertions.assertEquals("a", cache.getIfPresent(1));
+		}
+		Assertions.assertNull(cache.getIfPresent(2));
+	}
+	
+	@Test
+	public void testExpiredEntriesAreSwept()
+	{
+		var ticker = new ManualTicker();
+		LongLazyCache<String> cache = LongLazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), ticker);
+		for(int i = 0; i < 1000; i++)
+			cache.put(i, "value"+i);
+		
+		ticker.advance(Duration.ofMinutes(2));
+		for(int i = 0; i < 100; i++)
+			cache.put(-1, "fresh");
+		
+		Assertions.assertEquals(1, cache.size());
+		Assertions.assertEquals("fresh", cache.getIfPresent(-1));
+	}
+	
+	@Test
+	public void testExpiredEntriesAreSweptByReads()
+	{
+		var ticker = new ManualTicker();
+		LongLazyCache<String> cache = LongLazyCache.of(ExpirationSettings.after(Duration.ofMinutes(1)), ticker);
+		for(int i = 0; i < 1000; i++)
+			cache.put(i, "value"+i);
+		
+		ticker.advance(Duration.ofMinutes(2));
+		for(int i = 0; i < 10_000; i++)
+			cache.getIfPresent(i);
+		
+		Assertions.assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void testContainsKeyDoesNotCountAsUse()
+	{
+		var ticker = new ManualTicker();
+		LongLazyCache<String> cache = LongLazyCache.of(ExpirationSettings.unusedAfter(Duration.ofMinutes(1)), ticker);
+		cache.put(1, "a");
+		
+		ticker.advance(Duration.ofSeconds(40));
+		Assertions.assertTrue(cache.containsKey(1));
+		ticker.advance(Duration.ofSeconds(40));
+		Assertions.assertFalse(cache.containsKey(1));
+	}
+	
+}
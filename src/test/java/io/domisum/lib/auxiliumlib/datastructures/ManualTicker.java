@@ -0,0 +1,28 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import com.google.common.base.Ticker;
+
+import java.time.Duration;
+
+/**
+ * Ticker which only moves when told to, so that tests can control time.
+ */
+public class ManualTicker
+	extends Ticker
+{
+	
+	private volatile long nanos = 0;
+	
+	
+	@Override
+	public long read()
+	{
+		return nanos;
+	}
+	
+	public void advance(Duration duration)
+	{
+		nanos += duration.toNanos();
+	}
+	
+}
@@ -0,0 +1,143 @@
+package io.domisum.lib.auxiliumlib.datastructures;
+
+import io.domisum.lib.auxiliumlib.contracts.serdes.InputStreamSerdes;
+import io.domisum.lib.auxiliumlib.contracts.serdes.StringSerdes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class OffHeapLazyCacheTest
+{
+	
+	private static final StringSerdes<String> IDENTITY_SERDES = new StringSerdes<>()
+	{
+		@Override
+		public String serialize(String object)
+		{
+			return object;
+		}
+		
+		@Override
+		public String deserialize(String objectString)
+		{
+			return objectString;
+		}
+	};
+	
+	private static final InputStreamSerdes<String> STREAM_SERDES = new InputStreamSerdes<>()
+	{
+		@Override
+		public InputStream serializeToInputStream(String object)
+		{
+			return new ByteArrayInputStream(object.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		@Override
+		public String deserializeFromInputStream(InputStream stream)
+			throws IOException
+		{
+			return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	};
+	
+	
+	@Test
+	public void testValuesSurviveRoundTrip()
+	{
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(IDENTITY_SERDES, 1024*1024, null);
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(1, "c");
+		cache.remove(2);
+		
+		Assertions.assertEquals("c", cache.getIfPresent(1));
+		Assertions.assertNull(cache.getIfPresent(2));
+		Assertions.assertEquals(1, cache.size());
+	}
+	
+	@Test
+	public void testOldestSlabsAreEvictedWhenBudgetIsExceeded()
+	{
+		long budgetBytes = 1024*1024;
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(IDENTITY_SERDES, budgetBytes, null);
+		
+		String value = "x".repeat(1000);
+		int count = 3000;
+		for(int i = 0; i < count; i++)
+			cache.put(i, value+i);
+		
+		Assertions.assertTrue(cache.size() < budgetBytes/1000);
+		Assertions.assertNull(cache.getIfPresent(0));
+		Assertions.assertEquals(value+(count-1), cache.getIfPresent(count-1));
+	}
+	
+	@Test
+	public void testBudgetBelowMinimumSlabSizeIsRespected()
+	{
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(IDENTITY_SERDES, 1000, null);
+		cache.put(1, "x".repeat(600));
+		cache.put(2, "y".repeat(600));
+		cache.put(3, "z".repeat(1001));
+		
+		Assertions.assertNull(cache.getIfPresent(1));
+		Assertions.assertEquals("y".repeat(600), cache.getIfPresent(2));
+		Assertions.assertNull(cache.getIfPresent(3));
+	}
+	
+	@Test
+	public void testExpiredEntriesAreSweptOnPut()
+	{
+		var ticker = new ManualTicker();
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(STREAM_SERDES, 1024*1024,
+			ExpirationSettings.after(Duration.ofMinutes(1)), ticker);
+		for(int i = 0; i < 100; i++)
+			cache.put(i, "old");
+		
+		ticker.advance(Duration.ofMinutes(2));
+		for(int i = 100; i < 200; i++)
+			cache.put(i, "new");
+		
+		Assertions.assertEquals(100, cache.size());
+	}
+	
+	@Test
+	public void testEmptyValuesTakeUpSpace()
+	{
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(IDENTITY_SERDES, 1000, null);
+		for(int i = 0; i < 5000; i++)
+			cache.put(i, "");
+		
+		Assertions.assertTrue(cache.size() <= 1000);
+		Assertions.assertEquals("", cache.getIfPresent(4999));
+	}
+	
+	@Test
+	public void testClosedCacheIsEmptyAndRejectsPuts()
+	{
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.of(IDENTITY_SERDES, 1024*1024, null);
+		cache.put(1, "a");
+		cache.close();
+		
+		Assertions.assertNull(cache.getIfPresent(1));
+		Assertions.assertThrows(IllegalStateException.class, ()->cache.put(2, "b"));
+		cache.close();
+	}
+	
+	@Test
+	public void testMemoryMappedCacheWithStringSerdes(@TempDir Path directory)
+	{
+		OffHeapLazyCache<Integer, String> cache = OffHeapLazyCache.memoryMapped(IDENTITY_SERDES, directory.resolve("cache"), 1024*1024, null);
+		cache.put(1, "a");
+		
+		Assertions.assertEquals("a", cache.getIfPresent(1));
+		cache.close();
+	}
+	
+}
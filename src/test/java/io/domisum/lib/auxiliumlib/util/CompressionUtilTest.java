@@ -4,6 +4,10 @@ import io.domisum.lib.auxiliumlib.util.CompressionUtil.Speed;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -93,6 +97,36 @@ public class CompressionUtilTest
 		byte[] compressed = CompressionUtil.compress(data, speed);
 		byte[] decompressed = CompressionUtil.decompress(compressed);
 		Assertions.assertArrayEquals(data, decompressed);
+		
+		compressDecompressStreamingAndAssertEquals(data, speed);
+	}
+	
+	private void compressDecompressStreamingAndAssertEquals(byte[] data, Speed speed)
+	{
+		try
+		{
+			byte[] compressed;
+			try(var compressingStream = CompressionUtil.compressingInputStream(new ByteArrayInputStream(data), speed))
+			{
+				compressed = compressingStream.readAllBytes();
+			}
+			
+			var compressedOutput = new ByteArrayOutputStream();
+			try(var compressingStream = CompressionUtil.compressingOutputStream(compressedOutput, speed))
+			{
+				compressingStream.write(data);
+			}
+			
+			Assertions.assertArrayEquals(data, CompressionUtil.decompress(compressed));
+			try(var decompressingStream = CompressionUtil.decompressingInputStream(new ByteArrayInputStream(compressedOutput.toByteArray())))
+			{
+				Assertions.assertArrayEquals(data, decompressingStream.readAllBytes());
+			}
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
 	}
 	
 }
@@ -0,0 +1,78 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.datastructures.ManualTicker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DeadlineQueueTest
+{
+	
+	private static final Map<String, Duration> MAX_WAITS = Map.of(
+		"urgent", Duration.ofSeconds(1),
+		"normal", Duration.ofSeconds(10),
+		"lazy", Duration.ofSeconds(100));
+	
+	private final ManualTicker ticker = new ManualTicker();
+	private final DeadlineQueue<String> queue = new DeadlineQueue<>(s->MAX_WAITS.get(s.split("-")[0]), ticker);
+	
+	
+	// TESTS
+	@Test
+	public void testShorterMaxWaitOvertakes()
+	{
+		queue.add("lazy");
+		queue.add("normal");
+		queue.add("urgent");
+		
+		Assertions.assertEquals(List.of("urgent", "normal", "lazy"), drain());
+	}
+	
+	@Test
+	public void testEqualDeadlinesKeepInsertionOrder()
+	{
+		queue.add("normal-1");
+		queue.add("normal-2");
+		queue.add("normal-3");
+		
+		Assertions.assertEquals(List.of("normal-1", "normal-2", "normal-3"), drain());
+	}
+	
+	@Test
+	public void testWaitingWorkIsNotStarved()
+	{
+		queue.add("normal");
+		ticker.advance(Duration.ofSeconds(20));
+		queue.add("urgent");
+		
+		Assertions.assertEquals(List.of("normal", "urgent"), drain());
+	}
+	
+	@Test
+	public void testTickerOverflow()
+	{
+		ticker.advance(Duration.ofNanos(Long.MAX_VALUE-Duration.ofSeconds(5).toNanos()));
+		queue.add("normal");
+		queue.add("urgent");
+		queue.add("lazy");
+		
+		Assertions.assertEquals(List.of("urgent", "normal", "lazy"), drain());
+	}
+	
+	
+	// UTIL
+	private List<String> drain()
+	{
+		var drained = new ArrayList<String>();
+		String element;
+		while((element = queue.poll()) != null)
+			drained.add(element);
+		
+		return drained;
+	}
+	
+}
@@ -0,0 +1,163 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class InsertWorkDistributorTest
+{
+	
+	// TESTS: RETRY
+	@Test
+	public void testFailedWorkWaitsForBackoffByDefault()
+	{
+		var distributor = new InsertWorkDistributor<String>();
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+		ThreadUtil.sleep(Duration.ofMillis(200));
+		failOnce(distributor, "a");
+		Assertions.assertTrue(distributor.getDeadLetters().isEmpty());
+	}
+	
+	@Test
+	public void testFailedWorkWaitsForBackoff()
+	{
+		var distributor = new TestDistributor(Duration.ofHours(1), Integer.MAX_VALUE);
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+		Assertions.assertTrue(distributor.getDeadLetters().isEmpty());
+	}
+	
+	@Test
+	public void testFailedWorkIsRetried()
+	{
+		var distributor = new TestDistributor(Duration.ZERO, Integer.MAX_VALUE);
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		failOnce(distributor, "a");
+		
+		try(var work = distributor.getWorkOptional().orElseThrow())
+		{
+			Assertions.assertEquals("a", work.getSubject());
+			work.successful();
+		}
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+	}
+	
+	@Test
+	public void testSuccessResetsAttempts()
+	{
+		var distributor = new TestDistributor(Duration.ZERO, 2);
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		try(var work = distributor.getWorkOptional().orElseThrow())
+		{
+			work.successful();
+		}
+		
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		Assertions.assertTrue(distributor.getDeadLetters().isEmpty());
+	}
+	
+	
+	// TESTS: DEAD LETTERS
+	@Test
+	public void testWorkMovesToDeadLettersAfterMaxAttempts()
+	{
+		var distributor = new TestDistributor(Duration.ZERO, 3);
+		distributor.insert("a");
+		failOnce(distributor, "a");
+		failOnce(distributor, "a");
+		Assertions.assertTrue(distributor.getDeadLetters().isEmpty());
+		
+		failOnce(distributor, "a");
+		Assertions.assertEquals(List.of("a"), distributor.getDeadLetters());
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+	}
+	
+	@Test
+	public void testDrainDeadLetters()
+	{
+		var distributor = new TestDistributor(Duration.ZERO, 1);
+		distributor.insert("a");
+		distributor.insert("b");
+		failOnce(distributor, "a");
+		failOnce(distributor, "b");
+		
+		Assertions.assertEquals(List.of("a", "b"), distributor.drainDeadLetters());
+		Assertions.assertTrue(distributor.getDeadLetters().isEmpty());
+	}
+	
+	@Test
+	public void testOldestDeadLettersAreDropped()
+	{
+		var distributor = new TestDistributor(Duration.ZERO, 1)
+		{
+			@Override
+			protected int MAX_DEAD_LETTERS()
+			{
+				return 2;
+			}
+		};
+		for(var subject : List.of("a", "b", "c"))
+		{
+			distributor.insert(subject);
+			failOnce(distributor, subject);
+		}
+		
+		Assertions.assertEquals(List.of("b", "c"), distributor.drainDeadLetters());
+		distributor.insert("d");
+		failOnce(distributor, "d");
+		Assertions.assertEquals(List.of("d"), distributor.getDeadLetters());
+	}
+	
+	
+	// UTIL
+	private static void failOnce(WorkDistributor<String> distributor, String expectedSubject)
+	{
+		try(var work = distributor.getWorkOptional().orElseThrow())
+		{
+			Assertions.assertEquals(expectedSubject, work.getSubject());
+		}
+	}
+	
+	private static class TestDistributor
+		extends InsertWorkDistributor<String>
+	{
+		
+		private final Duration retryBaseDelay;
+		private final int maxAttempts;
+		
+		
+		// INIT
+		public TestDistributor(Duration retryBaseDelay, int maxAttempts)
+		{
+			this.retryBaseDelay = retryBaseDelay;
+			this.maxAttempts = maxAttempts;
+		}
+		
+		
+		// DISTRIBUTOR
+		@Override
+		protected int MAX_ATTEMPTS()
+		{
+			return maxAttempts;
+		}
+		
+		@Override
+		protected Duration RETRY_BASE_DELAY()
+		{
+			return retryBaseDelay;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,66 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class PriorityWorkDistributorTest
+{
+	
+	private final PriorityWorkDistributor<String> distributor = new PriorityWorkDistributor<>()
+	{
+		@Override
+		protected Duration getMaxWait(String subject)
+		{
+			return subject.startsWith("urgent") ? Duration.ZERO : Duration.ofHours(1);
+		}
+	};
+	
+	
+	// TESTS
+	@Test
+	public void testUrgentWorkIsHandedOutFirst()
+	{
+		distributor.insert("normal-1");
+		distributor.insert("urgent-1");
+		distributor.insert("normal-2");
+		distributor.insert("urgent-2");
+		
+		try(var batch = distributor.getWork(4))
+		{
+			Assertions.assertEquals(List.of("urgent-1", "urgent-2", "normal-1", "normal-2"), batch.getSubjects());
+		}
+	}
+	
+	@Test
+	public void testDuplicatesAreQueuedOnce()
+	{
+		distributor.insert("normal-1");
+		distributor.insert("urgent-1");
+		distributor.insert("normal-1");
+		distributor.insert("urgent-1");
+		
+		try(var batch = distributor.getWork(10))
+		{
+			Assertions.assertEquals(List.of("urgent-1", "normal-1"), batch.getSubjects());
+		}
+	}
+	
+	@Test
+	public void testReservedWorkIsNotQueuedAgain()
+	{
+		distributor.insert("urgent-1");
+		var work = distributor.getWorkOptional().orElseThrow();
+		
+		distributor.insert("urgent-1");
+		distributor.insert("normal-1");
+		Assertions.assertEquals("normal-1", distributor.getWorkOptional().orElseThrow().getSubject());
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+		
+		work.successful();
+		work.close();
+	}
+	
+}
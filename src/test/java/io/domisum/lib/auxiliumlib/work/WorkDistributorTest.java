@@ -0,0 +1,224 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class WorkDistributorTest
+{
+	
+	// TESTS: HOOKS
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedHooksSeeSingleAndBatchReservations()
+	{
+		var succeeded = new ArrayList<String>();
+		var closed = new ArrayList<String>();
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected void onSuccess(ReservedWork<String> work)
+			{
+				super.onSuccess(work);
+				succeeded.add(work.getSubject());
+			}
+			
+			@Override
+			protected void onClose(ReservedWork<String> work)
+			{
+				super.onClose(work);
+				closed.add(work.getSubject()+":"+work.isSuccessful());
+			}
+		};
+		distributor.insert("a");
+		distributor.insert("b");
+		distributor.insert("c");
+		
+		try(var work = distributor.getWorkOptional().orElseThrow())
+		{
+			work.successful();
+		}
+		try(var batch = distributor.getWork(2))
+		{
+			batch.successful(1);
+		}
+		
+		Assertions.assertEquals(List.of("a", "c"), succeeded);
+		Assertions.assertEquals(List.of("a:true", "b:false", "c:true"), closed);
+	}
+	
+	@Test
+	public void testSubjectHooksSeeBatchReservations()
+	{
+		var succeeded = new ArrayList<String>();
+		var closed = new ArrayList<String>();
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected void onSubjectSuccess(String subject)
+			{
+				super.onSubjectSuccess(subject);
+				succeeded.add(subject);
+			}
+			
+			@Override
+			protected void onSubjectClosed(String subject, boolean successful)
+			{
+				super.onSubjectClosed(subject, successful);
+				closed.add(subject+":"+successful);
+			}
+		};
+		distributor.insert("a");
+		distributor.insert("b");
+		
+		try(var batch = distributor.getWork(2))
+		{
+			batch.successful(0);
+		}
+		
+		Assertions.assertEquals(List.of("a"), succeeded);
+		Assertions.assertEquals(List.of("a:true", "b:false"), closed);
+	}
+	
+	@Test
+	public void testClosedSubjectCanBeQueuedAgain()
+	{
+		var distributor = new InsertWorkDistributor<String>();
+		distributor.insert("a");
+		var work = distributor.getWorkOptional().orElseThrow();
+		
+		distributor.insert("a");
+		Assertions.assertTrue(distributor.getWorkOptional().isEmpty());
+		
+		work.successful();
+		work.close();
+		distributor.insert("a");
+		Assertions.assertEquals("a", distributor.getWorkOptional().orElseThrow().getSubject());
+	}
+	
+	
+	// TESTS: BACKGROUND REFILL
+	@Test
+	public void testBackgroundRefillRunsOnOwnThread()
+	{
+		var distributor = new BackgroundRefillDistributor();
+		distributor.available.add("a");
+		
+		var work = awaitWork(distributor);
+		Assertions.assertEquals(Optional.of("a"), work.map(ReservedWork::getSubject));
+		Assertions.assertNotSame(Thread.currentThread(), distributor.lastRefillThread);
+		
+		distributor.stopBackgroundRefill();
+	}
+	
+	@Test
+	public void testStoppedBackgroundRefillRefillsOnCallingThread()
+	{
+		var distributor = new BackgroundRefillDistributor();
+		distributor.available.add("a");
+		awaitWork(distributor);
+		var backgroundThread = distributor.lastRefillThread;
+		
+		distributor.stopBackgroundRefill();
+		Assertions.assertFalse(backgroundThread.isAlive());
+		
+		distributor.available.add("b");
+		Assertions.assertEquals("b", distributor.getWorkOptional().orElseThrow().getSubject());
+		Assertions.assertSame(Thread.currentThread(), distributor.lastRefillThread);
+	}
+	
+	@Test
+	public void testRestartedBackgroundRefillRunsOnNewThread()
+	{
+		var distributor = new BackgroundRefillDistributor();
+		distributor.available.add("a");
+		awaitWork(distributor);
+		var firstThread = distributor.lastRefillThread;
+		distributor.stopBackgroundRefill();
+		
+		distributor.restartBackgroundRefill();
+		distributor.available.add("b");
+		Assertions.assertEquals(Optional.of("b"), awaitWork(distributor).map(ReservedWork::getSubject));
+		Assertions.assertNotSame(Thread.currentThread(), distributor.lastRefillThread);
+		Assertions.assertNotSame(firstThread, distributor.lastRefillThread);
+		
+		distributor.stopBackgroundRefill();
+	}
+	
+	@Test
+	public void testBackgroundRefillRecoversFromError()
+	{
+		var distributor = new BackgroundRefillDistributor();
+		distributor.throwErrorOnNextRefill.set(true);
+		distributor.available.add("a");
+		
+		// the first refill dies with the error, a later request has to start a new refill thread
+		Assertions.assertEquals(Optional.of("a"), awaitWork(distributor).map(ReservedWork::getSubject));
+		
+		distributor.stopBackgroundRefill();
+	}
+	
+	private static Optional<ReservedWork<String>> awaitWork(WorkDistributor<String> distributor)
+	{
+		long deadline = System.nanoTime()+Duration.ofSeconds(5).toNanos();
+		while(System.nanoTime() < deadline)
+		{
+			var work = distributor.getWorkOptional();
+			if(work.isPresent())
+				return work;
+			ThreadUtil.sleep(5);
+		}
+		
+		return Optional.empty();
+	}
+	
+	
+	// DISTRIBUTOR
+	private static class BackgroundRefillDistributor
+		extends WorkDistributor<String>
+	{
+		
+		private final Queue<String> available = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean throwErrorOnNextRefill = new AtomicBoolean(false);
+		private volatile Thread lastRefillThread;
+		
+		
+		// DISTRIBUTOR
+		@Override
+		protected boolean REFILL_IN_BACKGROUND()
+		{
+			return true;
+		}
+		
+		@Override
+		protected boolean shouldRefill()
+		{
+			return !available.isEmpty();
+		}
+		
+		@Override
+		protected Collection<String> getMoreWork()
+		{
+			lastRefillThread = Thread.currentThread();
+			if(throwErrorOnNextRefill.compareAndSet(true, false))
+				throw new AssertionError("expected test error");
+			
+			var moreWork = new ArrayList<String>();
+			String work;
+			while((work = available.poll()) != null)
+				moreWork.add(work);
+			return moreWork;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,166 @@
+package io.domisum.lib.auxiliumlib.work;
+
+import io.domisum.lib.auxiliumlib.util.ThreadUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkerPoolTest
+{
+	
+	// TESTS
+	@Test
+	public void testDrainAndStopCompletesAllWork()
+	{
+		var distributor = new InsertWorkDistributor<Integer>();
+		var completed = ConcurrentHashMap.<Integer>newKeySet();
+		for(int i = 0; i < 100; i++)
+			distributor.insert(i);
+		
+		var pool = WorkerPool.start(distributor, completed::add, 4, "test");
+		pool.drainAndStop();
+		
+		Assertions.assertEquals(100, completed.size());
+	}
+	
+	@Test
+	public void testDrainAndStopWaitsForRetries()
+	{
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected Duration RETRY_BASE_DELAY()
+			{
+				return Duration.ofMillis(50);
+			}
+		};
+		distributor.insert("a");
+		
+		var attempts = new AtomicInteger(0);
+		var pool = WorkerPool.start(distributor, s->attempts.incrementAndGet() >= 3, 2, "test");
+		pool.drainAndStop();
+		
+		Assertions.assertEquals(3, attempts.get());
+	}
+	
+	@Test
+	public void testDrainAndStopReturnsWhenWorkAlwaysThrows()
+	{
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected Duration RETRY_BASE_DELAY()
+			{
+				return Duration.ofMillis(1);
+			}
+		};
+		distributor.insert("a");
+		
+		var pool = WorkerPool.start(distributor, s->
+		{
+			throw new IllegalStateException("expected test exception");
+		}, 2, "test");
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), (Executable) pool::drainAndStop);
+		
+		Assertions.assertEquals(List.of("a"), distributor.getDeadLetters());
+	}
+	
+	@Test
+	public void testDrainAndStopGivesUpAfterMaxDrainDuration()
+	{
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected int MAX_ATTEMPTS()
+			{
+				return Integer.MAX_VALUE;
+			}
+		};
+		distributor.insert("a");
+		
+		var pool = WorkerPool.start(distributor, s->
+		{
+			throw new IllegalStateException("expected test exception");
+		}, 2, "test");
+		boolean drained = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+			()->pool.drainAndStop(Duration.ofMillis(200)));
+		
+		Assertions.assertFalse(drained);
+	}
+	
+	@Test
+	public void testExceptionsAreBackedOff()
+	{
+		var distributor = new InsertWorkDistributor<String>()
+		{
+			@Override
+			protected Duration RETRY_BASE_DELAY()
+			{
+				return Duration.ZERO;
+			}
+		};
+		distributor.insert("a");
+		
+		var attempts = new AtomicInteger(0);
+		var pool = WorkerPool.start(distributor, s->
+		{
+			attempts.incrementAndGet();
+			throw new IllegalStateException("expected test exception");
+		}, 1, "test");
+		ThreadUtil.sleep(Duration.ofMillis(300));
+		pool.stop();
+		
+		// waits starting at 1 ms and doubling allow about 9 attempts in 300 ms, without backoff there would be thousands
+		Assertions.assertTrue(attempts.get() <= 20, "too many attempts: "+attempts.get());
+	}
+	
+	@Test
+	public void testRejectedWorkerStopsStartedWorkers()
+		throws InterruptedException
+	{
+		var startedThreads = ConcurrentHashMap.<Thread>newKeySet();
+		Executor executor = new Executor()
+		{
+			private final AtomicInteger executed = new AtomicInteger(0);
+			
+			@Override
+			public void execute(Runnable command)
+			{
+				if(executed.incrementAndGet() > 1)
+					throw new RejectedExecutionException("expected test rejection");
+				startedThreads.add(ThreadUtil.createAndStartThread(command, "test-executor"));
+			}
+		};
+		
+		var distributor = new InsertWorkDistributor<String>();
+		Assertions.assertThrows(RejectedExecutionException.class, ()->WorkerPool.start(distributor, s->true, 3, "test", executor));
+		
+		Assertions.assertEquals(1, startedThreads.size());
+		for(var thread : startedThreads)
+		{
+			// the worker has counted down already, but its thread might still be exiting
+			thread.join(Duration.ofSeconds(5).toMillis());
+			Assertions.assertFalse(thread.isAlive());
+		}
+	}
+	
+	@Test
+	public void testStopWithoutWork()
+	{
+		var distributor = new InsertWorkDistributor<String>();
+		var pool = WorkerPool.start(distributor, s->true, 2, "test");
+		pool.stop();
+		
+		distributor.insert("a");
+		Assertions.assertEquals(List.of("a"), List.of(distributor.getWorkOptional().orElseThrow().getSubject()));
+	}
+	
+}